@@ -25,13 +25,15 @@ import de.fraunhofer.iosb.tc_lib.TcFailed;
 import de.fraunhofer.iosb.tc_lib.TcInconclusive;
 import hla.rti1516e.FederateHandle;
 import nato.ivct.etc.fr.tc_lib_hla_services.HLA_Services_BaseModel;
+import nato.ivct.etc.fr.tc_lib_hla_services.HLA_Services_FederationGroup;
+import nato.ivct.etc.fr.tc_lib_hla_services.HLA_Services_PhaseTimer;
+import nato.ivct.etc.fr.tc_lib_hla_services.HLA_Services_Preflight;
 import nato.ivct.etc.fr.tc_lib_hla_services.HLA_Services_TcParam;
 import nato.ivct.etc.fr.fctt_common.utils.FCTT_Constant;
 import nato.ivct.etc.fr.fctt_common.utils.TextInternationalization;
 
 import org.slf4j.Logger;
 
-import java.io.File;
 
 /**
  * @author FRANCE (DGA/Capgemini)
@@ -42,6 +44,8 @@ public class TC_001_Services_Check extends AbstractTestCase {
 
     // Build test case parameters to use
     static HLA_Services_TcParam              	HlaServicesTcParam;
+    // Checks of the parameters and FOM/SOM content hashes
+    static HLA_Services_Preflight				HlaServicesPreflight;
 
     // Get logging-IVCT-RTI using tc_param federation name, host
     private static IVCT_RTIambassador           ivct_rti;
@@ -49,19 +53,36 @@ public class TC_001_Services_Check extends AbstractTestCase {
     
     static IVCT_LoggingFederateAmbassador		ivct_LoggingFederateAmbassador;
 
+    // Additional federation executions
+    static HLA_Services_FederationGroup			HlaServicesFederationGroup;
+
 
     @Override
     public IVCT_BaseModel getIVCT_BaseModel(final String tcParamJson, final Logger logger) throws TcInconclusive {
 
+    	// Parameters and input files, checked before any RTI work
+    	HlaServicesTcParam           	= new HLA_Services_TcParam(tcParamJson);
+    	HlaServicesPreflight			= new HLA_Services_Preflight(logger, HlaServicesTcParam);
+    	HlaServicesPreflight.check();
+
     	try {
-	    	HlaServicesTcParam           	= new HLA_Services_TcParam(tcParamJson);
 	    	ivct_rti                        = IVCT_RTI_Factory.getIVCT_RTI(logger);
 	    	HlaServicesBaseModel         	= new HLA_Services_BaseModel(logger, ivct_rti, HlaServicesTcParam);
+	    	HlaServicesBaseModel.setFileHashes(HlaServicesPreflight.getFileHashes());
 	    	ivct_LoggingFederateAmbassador  = new IVCT_LoggingFederateAmbassador(HlaServicesBaseModel, logger);
     	}
     	catch(Exception ex) {
     		logger.error(TextInternationalization.getString("etc_fra.noInstanciation"));
     	}
+
+    	// Additional federations : the preamble cannot run without them
+    	try {
+	    	HlaServicesFederationGroup		= new HLA_Services_FederationGroup(logger, HlaServicesTcParam, HlaServicesBaseModel);
+    	}
+    	catch(Exception ex) {
+    		logger.error(TextInternationalization.getString("etc_fra.noInstanciation"));
+    		throw new TcInconclusive(TextInternationalization.getString("etc_fra.noInstanciation") + ": " + ex.getMessage());
+    	}
     	return HlaServicesBaseModel;
     }
 
@@ -83,31 +104,39 @@ public class TC_001_Services_Check extends AbstractTestCase {
     @Override
     protected void preambleAction(final Logger logger) throws TcInconclusive {
 
-    	// Load FOM/SOM files
-        if (HlaServicesBaseModel.loadFomSomFiles() == false)
+    	HlaServicesBaseModel.getPhaseTimer().mark(HLA_Services_PhaseTimer.PREAMBLE_START);
+
+    	// Load FOM/SOM files, shared by all the federations
+        if (HlaServicesFederationGroup.loadFomSomFiles() == false)
         	throw new TcInconclusive(TextInternationalization.getString("etc_fra.FomSomError"));
         
     	// Initiate rti
+        HlaServicesBaseModel.getPhaseTimer().mark(HLA_Services_PhaseTimer.INITIATE_RTI_START);
         TcFederateHandle = HlaServicesBaseModel.initiateRti(TcFederateName, ivct_LoggingFederateAmbassador);
+        HlaServicesBaseModel.getPhaseTimer().mark(HLA_Services_PhaseTimer.INITIATE_RTI_END);
+
+        // Deliver callbacks (HLA_EVOKED callback model)
+        HlaServicesBaseModel.startCallbackProcessing();
 
         // Do the necessary calls to get handles and do publish and subscribe
         if (HlaServicesBaseModel.init(HlaServicesTcParam.getSutName()))
             throw new TcInconclusive(TextInternationalization.getString("etc_fra.initError"));
 
+        // Same for the additional federations
+        if (HlaServicesFederationGroup.initiateRti(TcFederateName))
+            throw new TcInconclusive(TextInternationalization.getString("etc_fra.initError"));
+
     	logger.info(TextInternationalization.getString("etc_fra.RtiConnected"));
     	logger.info(FCTT_Constant.REPORT_FILE_SEPARATOR);
+
+    	// Footprint tracking in soak mode
+    	HlaServicesBaseModel.startSoakMonitor();
     }
 
 
     @Override
     protected void performTest(final Logger logger) throws TcInconclusive, TcFailed {
 
-    	// Check result directory
-    	String resultFileName = HlaServicesTcParam.getResultDir();
-        File resultFile = new File(resultFileName);
-        if (!resultFile.exists())
-            throw new TcInconclusive(String.format(TextInternationalization.getString("etc_fra.resultDirError"),resultFileName));
-    	
         // Allow time to work and get some reflect values.
         if (HlaServicesBaseModel.sleepFor(logger,HlaServicesTcParam.getTestDuration())) {
             throw new TcInconclusive(TextInternationalization.getString("etc_fra.sleepError"));
@@ -115,8 +144,12 @@ public class TC_001_Services_Check extends AbstractTestCase {
         
     	logger.info(TextInternationalization.getString("etc_fra.wakeup"));
 
+    	// Soak mode : footprint must stay bounded
+    	if (HlaServicesBaseModel.stopSoakMonitor())
+    		throw new TcInconclusive(TextInternationalization.getString("hlaservices.soakLimitExceeded"));
+
     	// Generate result files
-        if (HlaServicesBaseModel.validateServices() == false)
+        if (HlaServicesFederationGroup.validateServices() == false)
         	throw new TcFailed(TextInternationalization.getString("hlaservices.invalidServices"));
     }
 
@@ -124,7 +157,18 @@ public class TC_001_Services_Check extends AbstractTestCase {
     @Override
     protected void postambleAction(final Logger logger) throws TcInconclusive, TcInconclusive {
         
-        // Terminate rti
+        // Soak mode : stop sampling, also when performTest() ended early
+        HlaServicesBaseModel.stopSoakMonitor();
+
+        // Stop callbacks & terminate rti
+        HlaServicesFederationGroup.terminateRti();
+        HlaServicesBaseModel.stopCallbackProcessing();
         HlaServicesBaseModel.terminateRti();
+
+        // Phase timing, written whatever the test result
+        HlaServicesBaseModel.writePhaseTimes();
+
+        // FOM/SOM data model available for eviction
+        HlaServicesBaseModel.releaseFomSomModel();
     }
 }
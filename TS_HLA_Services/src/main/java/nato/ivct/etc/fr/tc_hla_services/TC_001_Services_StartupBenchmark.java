@@ -0,0 +1,107 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_hla_services;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Startup benchmark: time from JVM start to the "RTI connected" log line of
+ * preambleAction, FOM/SOM files loaded and RTI joined, measured by
+ * {@link TC_001_Services_StartupProbe} in fresh JVMs, without and with the
+ * application class-data sharing archive. The RTI must be running. The
+ * probes run on the JVM of the benchmark, which must be the JVM that dumped the
+ * archive.
+ * <p>
+ * Arguments : tcParamFile archiveFile [runs]
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class TC_001_Services_StartupBenchmark {
+
+	private static final String STARTUP_PREFIX = "startupMs=";
+
+
+	public static void main(final String[] args) throws Exception {
+
+		if (args.length < 2) {
+			System.err.println("usage: tcParamFile archiveFile [runs]");
+			System.exit(1);
+		}
+		String tcParamFile = args[0];
+		String archiveFile = args[1];
+		int runs = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+
+		System.out.println(String.format("%-12s %8s %8s %8s", "launch", "min (ms)", "median", "max"));
+		report("default", measure(runs, tcParamFile));
+		if (new File(archiveFile).isFile())
+			report("app CDS", measure(runs, tcParamFile, appCdsArgs("-Xshare:auto", "-XX:SharedArchiveFile=" + archiveFile)));
+		else
+			System.out.println("No archive " + archiveFile + ", run the cdsArchive task first");
+	}
+
+
+	// JDK 10 only maps application classes with -XX:+UseAppCDS, an option removed later
+	private static String[] appCdsArgs(final String... jvmArgs) {
+		if (!"10".equals(System.getProperty("java.specification.version")))
+			return jvmArgs;
+		List<String> args = new ArrayList<String>();
+		args.add("-XX:+UseAppCDS");
+		args.addAll(Arrays.asList(jvmArgs));
+		return args.toArray(new String[args.size()]);
+	}
+
+
+	private static long[] measure(final int runs, final String tcParamFile, final String... jvmArgs) throws IOException, InterruptedException {
+
+		long[] startups = new long[runs];
+		for (int i = 0; i < runs; i++) {
+			List<String> command = new ArrayList<String>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			command.addAll(Arrays.asList(jvmArgs));
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(TC_001_Services_StartupProbe.class.getName());
+			command.add(tcParamFile);
+
+			Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+			startups[i] = -1;
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith(STARTUP_PREFIX))
+						startups[i] = Long.parseLong(line.substring(STARTUP_PREFIX.length()).trim());
+				}
+			}
+			process.waitFor();
+			if (startups[i] < 0)
+				throw new IOException("Startup probe failed, exit code " + process.exitValue());
+		}
+		Arrays.sort(startups);
+		return startups;
+	}
+
+
+	private static void report(final String launch, final long[] sortedStartups) {
+		System.out.println(String.format("%-12s %8d %8d %8d", launch, sortedStartups[0], sortedStartups[sortedStartups.length / 2], sortedStartups[sortedStartups.length - 1]));
+	}
+}
@@ -0,0 +1,70 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_hla_services;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fraunhofer.iosb.tc_lib.TcInconclusive;
+
+/**
+ * Run the test case as the test runner does, through preambleAction: FOM/SOM
+ * loading, RTI connection and publish/subscribe, up to its "RTI connected" log
+ * line. Print the JVM uptime at that point ("startupMs=...") then leave the
+ * federation execution with postambleAction.
+ * <p>
+ * The RTI of the test case parameters must be running. The same run is the
+ * training run which records the classes of the class-data sharing archive.
+ * <p>
+ * Arguments : tcParamFile
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class TC_001_Services_StartupProbe {
+
+	public static void main(final String[] args) throws Exception {
+
+		if (args.length < 1) {
+			System.err.println("usage: tcParamFile");
+			System.exit(1);
+		}
+		final String tcParamJson = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8);
+		final Logger logger = LoggerFactory.getLogger(TC_001_Services_Check.class);
+
+		final TC_001_Services_Check testCase = new TC_001_Services_Check();
+		testCase.getIVCT_BaseModel(tcParamJson, logger);
+		testCase.logTestPurpose(logger);
+		try {
+			testCase.preambleAction(logger);
+		}
+		catch (TcInconclusive e) {
+			System.err.println("preambleAction failed: " + e.getMessage());
+			System.exit(2);
+		}
+
+		// preambleAction has just logged "RTI connected"
+		System.out.println("startupMs=" + ManagementFactory.getRuntimeMXBean().getUptime());
+
+		testCase.postambleAction(logger);
+		System.exit(0);
+	}
+}
@@ -21,6 +21,12 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import de.fraunhofer.iosb.tc_lib.IVCT_BaseModel;
 import de.fraunhofer.iosb.tc_lib.IVCT_RTIambassador;
 
@@ -29,6 +35,7 @@ import hla.rti1516e.AttributeHandleSet;
 import hla.rti1516e.AttributeHandleValueMap;
 import hla.rti1516e.CallbackModel;
 import hla.rti1516e.FederateAmbassador;
+import hla.rti1516e.FederateHandle;
 import hla.rti1516e.InteractionClassHandle;
 import hla.rti1516e.LogicalTime;
 import hla.rti1516e.MessageRetractionHandle;
@@ -83,17 +90,34 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
     private FCTTFilesCheck 			filesLoader;
     private File					certifiedServicesResultFile;
     private File					nonCertifiedServicesResultFile;
+    private File					fomSomCheckResultFile;
+    private HLA_Services_ResultsStore	resultsStore;
+    private int						certifiedServicesCount = 0;
+    private int						nonCertifiedServicesCount = 0;
     
 	// RTI
     private IVCT_RTIambassador      ivct_rti;
     private EncoderFactory          _encoderFactory;
+    // Decoders reused by the callbacks
+    private HLAboolean              _booleanDecoder;
+    private HLAunicodeString        _stringDecoder;
+    // Callback thread of the HLA_EVOKED callback model
+    private HLA_Services_EvokedCallbackLoop	evokedCallbackLoop;
     
     // SUT management
-	private byte[] 					sutHandle = null;
+	private volatile byte[] 		sutHandle = null;
+	private HLA_Services_SutDiscovery	sutDiscovery;
+	private ObjectClassHandle		federateClassId;
 
 	// SUT data model
 	private ServiceHLA 				HlaServicesModel;
 	private ResultServicesModel		HlaResultServicesModel;
+	// Services declared as used by the SOMs, streamed from the SOM files
+	private Set<String>				declaredServices = Collections.emptySet();
+	// Use of the process wide FOM/SOM data model
+	private HLA_Services_ModelRegistry.Lease	modelLease;
+	// SHA-256 content hash of every FOM and SOM file, computed by the preflight
+	private Map<String, String>		fileHashes = Collections.emptyMap();
 
     private String					sutName;
     private AttributeHandle         federateNameId;
@@ -104,6 +128,23 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 	// Interaction management
     private ParameterHandle 		serviceId;
     private ParameterHandle 		successIndicatorId;
+
+    // Soak mode
+    private HLA_Services_SoakMonitor	soakMonitor;
+    private File					soakResultFile;
+
+    // Phase timing
+    private HLA_Services_PhaseTimer	phaseTimer;
+    private File					timingResultFile;
+    // Services reported by the callbacks, applied to the result data model by the test thread
+    private HLA_Services_ServiceStates	serviceStates = new HLA_Services_ServiceStates();
+    private Set<String>				appliedServices = new HashSet<String>();
+
+    // Callback latency probe & stall watchdog
+    private HLA_Services_Watchdog	watchdog;
+    private File					watchdogResultFile;
+    private volatile long			lastCallbackNanos = System.nanoTime();
+    private volatile long			lastReportNanos = 0;
     
 	/**
      * @param logger reference to a logger
@@ -115,21 +156,61 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
         super(ivct_rti, logger, HlaServicesTcParam);
         this.ivct_rti = ivct_rti;
         this._encoderFactory = ivct_rti.getEncoderFactory();
+        this._booleanDecoder = _encoderFactory.createHLAboolean();
+        this._stringDecoder = _encoderFactory.createHLAunicodeString();
         this.logger = logger;
         this.tcParams = HlaServicesTcParam;
-		this.filesLoader = new FCTTFilesCheck(logger, HlaServicesTcParam.getResultDir(), HlaServicesTcParam.getSutName());
+		// FOM/SOM loader (EMF & SME metamodels) created when the files are loaded
+		this.filesLoader = null;
 
 		// Data models
         this.HlaServicesModel = null;
         this.HlaResultServicesModel = null;
 
     	// Generate result files
-		String certifiedServicesFileName = "HLA_Services_certified_services_" + FCTT_Environment.getDateForFileName() + FCTT_Constant.REPORT_FILE_NAME_EX;
+		String certifiedServicesFileName = "HLA_Services_certified_services_" + HlaServicesTcParam.getResultFileTag() + FCTT_Environment.getDateForFileName() + FCTT_Constant.REPORT_FILE_NAME_EX;
 		certifiedServicesResultFile = new File(HlaServicesTcParam.getResultDir() + File.separator + certifiedServicesFileName);        
-		String nonCertifiedServicesFileName = "HLA_Services_non_certified_services_" + FCTT_Environment.getDateForFileName() + FCTT_Constant.REPORT_FILE_NAME_EX;
+		String nonCertifiedServicesFileName = "HLA_Services_non_certified_services_" + HlaServicesTcParam.getResultFileTag() + FCTT_Environment.getDateForFileName() + FCTT_Constant.REPORT_FILE_NAME_EX;
 		nonCertifiedServicesResultFile = new File(HlaServicesTcParam.getResultDir() + File.separator + nonCertifiedServicesFileName);        
+		String fomSomCheckFileName = "HLA_Services_fom_som_check_" + HlaServicesTcParam.getResultFileTag() + FCTT_Environment.getDateForFileName() + FCTT_Constant.REPORT_FILE_NAME_EX;
+		fomSomCheckResultFile = new File(HlaServicesTcParam.getResultDir() + File.separator + fomSomCheckFileName);
+
+		// Phase timing
+		phaseTimer = new HLA_Services_PhaseTimer();
+		String timingFileName = "HLA_Services_timing_" + HlaServicesTcParam.getResultFileTag() + FCTT_Environment.getDateForFileName() + ".json";
+		timingResultFile = new File(HlaServicesTcParam.getResultDir() + File.separator + timingFileName);
+
+		// Callback latency probe & stall watchdog
+		String watchdogFileName = "HLA_Services_watchdog_" + HlaServicesTcParam.getResultFileTag() + FCTT_Environment.getDateForFileName() + FCTT_Constant.REPORT_FILE_NAME_EX;
+		watchdogResultFile = new File(HlaServicesTcParam.getResultDir() + File.separator + watchdogFileName);
+
+		// Certification history
+		resultsStore = new HLA_Services_ResultsStore(HlaServicesTcParam.getResultDir());
+
+		// Soak mode
+		if (HlaServicesTcParam.isSoakMode()) {
+			soakMonitor = new HLA_Services_SoakMonitor(logger, HlaServicesTcParam.getSoakSampleInterval(), HlaServicesTcParam.getSoakMaxHeapGrowth());
+			String soakFileName = "HLA_Services_soak_" + HlaServicesTcParam.getResultFileTag() + FCTT_Environment.getDateForFileName() + ".csv";
+			soakResultFile = new File(HlaServicesTcParam.getResultDir() + File.separator + soakFileName);
+		}
     }
 
+
+	/**
+	 * @param fileHashes SHA-256 content hash of every FOM and SOM file, see HLA_Services_Preflight
+	 */
+	public void setFileHashes(final Map<String, String> fileHashes) {
+		this.fileHashes = fileHashes;
+	}
+
+
+	/**
+	 * @return SHA-256 content hash of every FOM and SOM file, empty if not computed
+	 */
+	public Map<String, String> getFileHashes() {
+		return fileHashes;
+	}
+
     
 	/**
 	 * Load the FOM and SOM files.
@@ -137,20 +218,113 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 	 */
 	public boolean loadFomSomFiles() {
 		
-		// Check files
-		boolean filesLoaded = filesLoader.checkFiles(tcParams.getFomFiles(),tcParams.getSomFiles(),null);
+		// Check files, once per FOM/SOM contents in the process
+		phaseTimer.mark(HLA_Services_PhaseTimer.FOM_LOAD_START);
+		releaseFomSomModel();
+		try {
+			modelLease = HLA_Services_ModelRegistry.getInstance().acquire(tcParams.getFomFiles(), tcParams.getSomFiles(), fileHashes, this::parseFomSomFiles);
+		}
+		catch (IOException e) {
+			logger.error(TextInternationalization.getString("etc_fra.FomSomError") + " : " + e.getMessage());
+		}
+		boolean filesLoaded = (modelLease != null);
 
 		if (filesLoaded)
 		{
+			if (modelLease.isShared())
+				logger.info(String.format(TextInternationalization.getString("hlaservices.fomSomReused"), modelLease.getModel().getCheckResultDir()));
+			// Check record of this execution, the check output stays where the model was loaded
+			writeFomSomCheck(modelLease.getModel());
 			// Get HLA data model
-			HlaServicesModel = filesLoader.getServiceHLA();			
+			HlaServicesModel = modelLease.getModel().getServiceModel();
+			declaredServices = modelLease.getModel().getDeclaredServices();
 			// Build result data model from HLA data model
 			HlaResultServicesModel = new ResultServicesModel();
 			HlaResultServicesModel.setDataModel(HlaServicesModel);
 		}
+		phaseTimer.mark(HLA_Services_PhaseTimer.FOM_LOAD_END);
 		return filesLoaded;
 	}
 
+
+	/**
+	 * Build the HLA data model of the FOM and SOM files
+	 * @return the data model, null if the files are not valid
+	 */
+	private HLA_Services_ModelRegistry.SharedModel parseFomSomFiles() {
+
+		// Declared services, streamed without building the object model
+		Set<String> lDeclaredServices = new TreeSet<String>();
+		try {
+			lDeclaredServices = HLA_Services_SomServicesReader.readDeclaredServices(tcParams.getSomFiles());
+		}
+		catch (IOException e) {
+			logger.warn(TextInternationalization.getString("hlaservices.declaredServicesError") + " : " + e.getMessage());
+		}
+		if (filesLoader == null)
+			filesLoader = new FCTTFilesCheck(logger, tcParams.getResultDir(), tcParams.getSutName());
+		if (!filesLoader.checkFiles(tcParams.getFomFiles(),tcParams.getSomFiles(),null))
+			return null;
+		return new HLA_Services_ModelRegistry.SharedModel(filesLoader.getServiceHLA(), lDeclaredServices, tcParams.getResultDir(), tcParams.getSutName());
+	}
+
+
+	/**
+	 * Write the FOM/SOM check record of this execution: content hash of the
+	 * files and check output of the execution which loaded the model
+	 * @param model FOM/SOM data model used by this execution
+	 */
+	private void writeFomSomCheck(final HLA_Services_ModelRegistry.SharedModel model) {
+
+		try (FileWriter writer = new FileWriter(fomSomCheckResultFile)) {
+			writer.write("###########################################################\r\n");
+			writer.write(TextInternationalization.getString("hlaservices.fomSomCheck.header") + " \"" + tcParams.getSutName() + "\"\r\n");
+			writer.write("Date : " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy_MM_dd_HH'h'mm'm'ss's'")) + "\r\n");
+			writer.write("###########################################################\r\n");
+			writer.write("\r\n");
+			for (String fomFile : tcParams.getFomFiles())
+				writer.write("FOM " + HLA_Services_ModelRegistry.getHash(fomFile, fileHashes) + "  " + fomFile + "\r\n");
+			for (String somFile : tcParams.getSomFiles())
+				writer.write("SOM " + HLA_Services_ModelRegistry.getHash(somFile, fileHashes) + "  " + somFile + "\r\n");
+			writer.write("\r\n");
+			writer.write(String.format(TextInternationalization.getString("hlaservices.fomSomCheck.output"), model.getCheckSutName(), model.getCheckResultDir()) + "\r\n");
+		}
+		catch (IOException e) {
+			logger.error(String.format(TextInternationalization.getString("etc_fra.resultDirError"), fomSomCheckResultFile.getAbsolutePath()) + " : " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Release the FOM/SOM data model for the other test executions of the process
+	 */
+	public void releaseFomSomModel() {
+		if (modelLease == null)
+			return;
+		modelLease.release();
+		modelLease = null;
+	}
+
+
+	/**
+	 * Use the FOM and SOM data model already loaded by another base model.
+	 * The ServiceHLA is shared, not copied: ResultServicesModel only reads it
+	 * (setDataModel), the service states of a run are kept by the
+	 * ResultServicesModel of each base model (updateState)
+	 * @param source base model which loaded the FOM and SOM files
+	 */
+	public void useFomSomModel(final HLA_Services_BaseModel source) {
+
+		// Shared HLA data model, own result data model
+		HlaServicesModel = source.HlaServicesModel;
+		declaredServices = source.declaredServices;
+		fileHashes = source.fileHashes;
+		HlaResultServicesModel = new ResultServicesModel();
+		HlaResultServicesModel.setDataModel(HlaServicesModel);
+		if (source.modelLease != null)
+			writeFomSomCheck(source.modelLease.getModel());
+	}
+
 	
     /**
      * @param sutName system under test name
@@ -160,6 +334,7 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
     	
     	// SuT name
     	this.sutName = sutName;
+    	phaseTimer.mark(HLA_Services_PhaseTimer.INIT_START);
     	
         // Federation & federate ids
     	ObjectClassHandle	federateId;
@@ -203,6 +378,11 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
         	logger.error("Cannot subscribe attributes");
         	return true;
         }
+
+        // Ask for the HLAfederate attributes rather than waiting for them
+        federateClassId = federateId;
+        sutDiscovery = new HLA_Services_SutDiscovery(logger, ivct_rti, federateId, federateSet, () -> sutHandle != null);
+        sutDiscovery.start();
         
         // Interactions
     	InteractionClassHandle reportServiceInvocationId;
@@ -217,7 +397,15 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 	    	return true;
 		}
 
+    	// Watchdog, not needed to run the test
+    	if (tcParams.getWatchdogPeriod() > 0) {
+    		watchdog = new HLA_Services_Watchdog(logger, ivct_rti, tcParams.getWatchdogPeriod(), tcParams.getStallThreshold(), () -> lastCallbackNanos, () -> lastReportNanos);
+    		if (watchdog.start())
+    			watchdog = null;
+    	}
+
         // All ok
+    	phaseTimer.mark(HLA_Services_PhaseTimer.INIT_END);
         return false;
     }
 
@@ -286,6 +474,8 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 	 */
 	public boolean validateServices() {
 		
+		phaseTimer.mark(HLA_Services_PhaseTimer.VALIDATE_START);
+		applyServiceStates();
 		String lCurrentDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy_MM_dd_HH'h'mm'm'ss's'"));
 		
 		FileWriter certifiedServicesResult = null;
@@ -304,7 +494,7 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 	    	
 	    	// Write result files & logs
 	    	String result;
-	    	result = saveResultsWriteHeader(lCurrentDate, eBuildResults.ServicesCertificated);
+	    	result = HLA_Services_ResultReport.writeHeader(tcParams.getSutName(), lCurrentDate, eBuildResults.ServicesCertificated);
 	    	certifiedServicesResult.write(result);
 	    	// 2018/01/09 ETC FRA 1.4, Capgemini, results not logged
 			// logger.info(result);
@@ -314,10 +504,11 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 			// logger.info(result);
 	    	result = HlaResultServicesModel.writeResults(eBuildResults.ServicesCertificated, fileWriter, formatter).getString();
 	    	certifiedServicesResult.write(result);
+	    	List<String> certifiedServices = HLA_Services_ResultReport.parseServiceLines(result);
 	    	// 2018/01/09 ETC FRA 1.4, Capgemini, results not logged
 			// logger.info(result);
 	    	
-	    	result = saveResultsWriteHeader(lCurrentDate, eBuildResults.ServicesNotCertificated);
+	    	result = HLA_Services_ResultReport.writeHeader(tcParams.getSutName(), lCurrentDate, eBuildResults.ServicesNotCertificated);
 	    	nonCertifiedServicesResult.write(result);
 	    	// 2018/01/09 ETC FRA 1.4, Capgemini, results not logged
 			// logger.info(result);
@@ -327,6 +518,10 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 			// logger.info(result);
 	    	result = HlaResultServicesModel.writeResults(eBuildResults.ServicesNotCertificated, fileWriter, formatter).getString();
 	    	nonCertifiedServicesResult.write(result);
+	    	List<String> nonCertifiedServices = HLA_Services_ResultReport.parseServiceLines(result);
+	    	nonCertifiedServices.removeAll(certifiedServices);
+	    	certifiedServicesCount = certifiedServices.size();
+	    	nonCertifiedServicesCount = nonCertifiedServices.size();
 	    	// 2018/01/09 ETC FRA 1.4, Capgemini, results not logged
 			// logger.info(result);
 			
@@ -335,6 +530,14 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 			logger.info(TextInternationalization.getString("etc_fra.lookAtResultsFiles")); 
 			logger.info(" - " + certifiedServicesResultFile.getAbsolutePath()); 
 			logger.info(" - " + nonCertifiedServicesResultFile.getAbsolutePath());
+
+			// Keep certification history, the result files stay the reference
+			try {
+				resultsStore.addRun(lCurrentDate, tcParams.getSutName(), certifiedServices, nonCertifiedServices, certifiedServicesResultFile.getName());
+			}
+			catch (IOException e) {
+				logger.warn("Cannot update results store: " + e.getMessage());
+			}
 		}
 		catch (Exception e) {
 			return false;
@@ -353,56 +556,51 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 				return false;
 			}
 		}
+		phaseTimer.mark(HLA_Services_PhaseTimer.VALIDATE_END);
 		return HlaResultServicesModel.getValidated();
 	}
 
 
     /**
-     * Return the header for the results files
-     * @param pCurrentDate Current date to write in the header
-     * @param pBuildAction Adapts the header according to the type of result concerned
-     * @return String which contains the header
-     * @throws IOException
+     * @return the certified services result file
      */
-    private String saveResultsWriteHeader(String pCurrentDate, eBuildResults pBuildAction) throws IOException
-    {
-    	String lHeader = "";
-    	String lExplanationContent = "";
-    	
-    	if (pBuildAction == eBuildResults.ServicesCertificated)
-    	{
-    		lExplanationContent = TextInternationalization.getString("resultsFile.header.services.certificated");
-    	}
-    	
-    	if (pBuildAction == eBuildResults.ServicesNotCertificated)
-    	{
-    		lExplanationContent = TextInternationalization.getString("resultsFile.header.services.notCertificated");
-    	}
-    	
-    	lHeader = lHeader+"###########################################################\r\n";
-    	lHeader = lHeader+TextInternationalization.getString("resultsFile.header")+" \""+tcParams.getSutName()+"\"\r\n";
-    	lHeader = lHeader+"Date : "+pCurrentDate;
-    	lHeader = lHeader+"\r\n";
-    	lHeader = lHeader+"\r\n";
-    	lHeader = lHeader+lExplanationContent;
-    	lHeader = lHeader+"\r\n";
-    	lHeader = lHeader+"\r\n";
-    	lHeader = lHeader+TextInternationalization.getString("resultsFile.header.explanations");
-    	lHeader = lHeader+"\r\n";
-    	lHeader = lHeader+"###########################################################\r\n";
-    	lHeader = lHeader+"\r\n";
-    	
-    	return lHeader;
+    public File getCertifiedServicesResultFile() {
+    	return certifiedServicesResultFile;
     }
 
-    
+
+    /**
+     * @return the non certified services result file
+     */
+    public File getNonCertifiedServicesResultFile() {
+    	return nonCertifiedServicesResultFile;
+    }
+
+
+    /**
+     * @return number of certified services of the last validation
+     */
+    public int getCertifiedServicesCount() {
+    	return certifiedServicesCount;
+    }
+
+
+    /**
+     * @return number of non certified services of the last validation
+     */
+    public int getNonCertifiedServicesCount() {
+    	return nonCertifiedServicesCount;
+    }
+
+
     /**
+     * Connect with the callback model of the test case parameters
      * {@inheritDoc}
      */
     public void connect(final FederateAmbassador federateReference, final CallbackModel callbackModel, final String localSettingsDesignator) {
         try {
         	if (ivct_rti != null)
-        		ivct_rti.connect(federateReference, callbackModel, localSettingsDesignator);
+        		ivct_rti.connect(federateReference, tcParams.getCallbackModel(), localSettingsDesignator);
         }
         catch (ConnectionFailed | InvalidLocalSettingsDesignator | UnsupportedCallbackModel | AlreadyConnected | CallNotAllowedFromWithinCallback | RTIinternalError ex) {
             // TODO Auto-generated catch block
@@ -411,6 +609,126 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
     }
 
 
+    /**
+     * @return the phase timer of this test execution
+     */
+    public HLA_Services_PhaseTimer getPhaseTimer() {
+    	return phaseTimer;
+    }
+
+
+    /**
+     * Write the phase timing file next to the result files
+     */
+    public void writePhaseTimes() {
+    	try {
+    		phaseTimer.write(timingResultFile, tcParams.getFederationName(), tcParams.getSutName());
+    	}
+    	catch (IOException e) {
+    		logger.error("Cannot write timing file: " + e.getMessage());
+    	}
+    }
+
+
+    /**
+     * @return the services reported so far, without blocking the callbacks
+     */
+    public HLA_Services_ServiceStates.Snapshot getCoverageSnapshot() {
+    	return serviceStates.snapshot();
+    }
+
+
+    /**
+     * @return the services declared as used by the SOMs, empty if they could not be read
+     */
+    public Set<String> getDeclaredServices() {
+    	return declaredServices;
+    }
+
+
+    /**
+     * Note the full coverage time, when every service declared as used by the
+     * SOMs has been reported. Only reads a snapshot: the result data model is
+     * updated by validateServices()
+     */
+    private void followCoverage() {
+    	if (declaredServices.isEmpty()) {
+    		// Declared services unknown : ask the result data model
+    		applyServiceStates();
+    		return;
+    	}
+    	if (phaseTimer.hasOccurred(HLA_Services_PhaseTimer.FULL_COVERAGE))
+    		return;
+    	HLA_Services_ServiceStates.Snapshot snapshot = serviceStates.snapshot();
+    	List<String> services = snapshot.getServices();
+    	int covered = 0;
+    	for (int i = 0; i < services.size(); i++) {
+    		// Snapshot in first seen order : the last declared service completes the coverage
+    		if (declaredServices.contains(services.get(i)) && (++covered == declaredServices.size())) {
+    			phaseTimer.markAt(HLA_Services_PhaseTimer.FULL_COVERAGE, snapshot.getFirstSeenNanos(i));
+    			return;
+    		}
+    	}
+    }
+
+
+    /**
+     * Apply the services reported by the callbacks to the result data model,
+     * in report order, noting the full coverage time
+     */
+    private synchronized void applyServiceStates() {
+    	if (HlaResultServicesModel == null)
+    		return;
+    	HLA_Services_ServiceStates.Snapshot snapshot = serviceStates.snapshot();
+    	List<String> services = snapshot.getServices();
+    	if (services.size() == appliedServices.size())
+    		return;
+    	for (int i = 0; i < services.size(); i++) {
+    		if (appliedServices.add(services.get(i))) {
+    			HlaResultServicesModel.updateState(services.get(i));
+    			if (!phaseTimer.hasOccurred(HLA_Services_PhaseTimer.FULL_COVERAGE) && HlaResultServicesModel.getValidated())
+    				phaseTimer.markAt(HLA_Services_PhaseTimer.FULL_COVERAGE, snapshot.getFirstSeenNanos(i));
+    		}
+    	}
+    }
+
+
+    /**
+     * Start the callback thread if the callback model is HLA_EVOKED
+     */
+    public void startCallbackProcessing() {
+    	if ((tcParams.getCallbackModel() != CallbackModel.HLA_EVOKED) || (evokedCallbackLoop != null))
+    		return;
+    	evokedCallbackLoop = new HLA_Services_EvokedCallbackLoop(logger, ivct_rti, tcParams.getEvokeMinWait(), tcParams.getEvokeMaxWait());
+    	evokedCallbackLoop.start("HLA_Services_evoke_" + tcParams.getFederationName());
+    }
+
+
+    /**
+     * Stop the SUT discovery requests, the watchdog and the callback thread, to be called before terminating the RTI
+     */
+    public void stopCallbackProcessing() {
+    	if (sutDiscovery != null)
+    		sutDiscovery.stop();
+    	if (watchdog != null) {
+    		watchdog.stop();
+    		logger.info(watchdog.getSummary());
+    		try {
+    			watchdog.write(watchdogResultFile);
+    		}
+    		catch (IOException e) {
+    			logger.error("Cannot write watchdog file: " + e.getMessage());
+    		}
+    		watchdog = null;
+    	}
+    	if (evokedCallbackLoop == null)
+    		return;
+    	evokedCallbackLoop.stop();
+    	logger.debug("evokeMultipleCallbacks calls: " + evokedCallbackLoop.getEvokeCount());
+    	evokedCallbackLoop = null;
+    }
+
+
     /**
      * @param logger reference to a logger
      * @param sleepTime time to sleep
@@ -420,8 +738,16 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
     	// Wait
     	logger.info(TextInternationalization.getString("etc_fra.sleepFor"));
 
+    	// Wake up every second, to follow the coverage and stop early if the soak limit is reached
+    	final long endTime = System.nanoTime() + sleepTime * 1000000000L;
         try {
-            Thread.sleep(sleepTime * 1000);
+        	long remaining;
+        	while ((remaining = (endTime - System.nanoTime()) / 1000000) > 0) {
+        		if ((soakMonitor != null) && soakMonitor.isLimitExceeded())
+        			break;
+        		followCoverage();
+        		Thread.sleep(Math.min(remaining, 1000));
+        	}
         }
         catch (final InterruptedException ex) {
             return true;
@@ -431,6 +757,47 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
     }
 
 
+    /**
+     * Start the footprint tracking if the soak mode is on
+     */
+    public void startSoakMonitor() {
+    	if (soakMonitor != null)
+    		soakMonitor.start();
+    }
+
+
+    /**
+     * Stop the footprint tracking and write its time series, once whatever the
+     * number of calls
+     * @return true means the footprint grew past the limit, false is ok
+     */
+    public boolean stopSoakMonitor() {
+    	if (soakMonitor == null)
+    		return false;
+    	soakMonitor.stop();
+    	if (soakResultFile != null) {
+	    	try {
+	    		soakMonitor.writeTimeSeries(soakResultFile);
+	    	}
+	    	catch (IOException e) {
+	    		logger.error(String.format(TextInternationalization.getString("hlaservices.soakWriteError"), soakResultFile.getAbsolutePath()) + ": " + e.getMessage());
+	    	}
+	    	soakResultFile = null;
+    	}
+    	return soakMonitor.isLimitExceeded();
+    }
+
+
+    /**
+     * Log a callback error, bounded in soak mode
+     * @param message error message
+     */
+    private void logCallbackError(final String message) {
+    	if ((soakMonitor == null) || soakMonitor.allowLog())
+    		logger.error(message);
+    }
+
+
     // 5.12
     @Override
     public void turnInteractionsOn(final InteractionClassHandle theHandle) throws FederateInternalError {
@@ -450,37 +817,48 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 
 //    	logger.debug(String.format("Interaction : %s",interactionClass.toString()));
 //    	logger.debug(String.format("Parameters : %s",theParameters.toString()));
+
+    	if (soakMonitor != null)
+    		soakMonitor.onCallback();
+    	lastCallbackNanos = System.nanoTime();
+
+    	// Watchdog probe reply
+    	final HLA_Services_Watchdog currentWatchdog = watchdog;
+    	if ((currentWatchdog != null) && currentWatchdog.isProbeReply(interactionClass)) {
+    		currentWatchdog.onProbeReply();
+    		return;
+    	}
     	
     	try {
 			String interactionClassName = ivct_rti.getInteractionClassName(interactionClass);
 			
 			if (interactionClassName.endsWith("HLAreportServiceInvocation"))
 			{
+				lastReportNanos = System.nanoTime();
 		        // Update data model
 	    		try {
 	    			// Get success indicator
-	    			final HLAboolean successDecoder = _encoderFactory.createHLAboolean();
-	    			successDecoder.decode(theParameters.get(successIndicatorId));
-					boolean successIndicator = successDecoder.getValue();
+	    			_booleanDecoder.decode(theParameters.get(successIndicatorId));
+					boolean successIndicator = _booleanDecoder.getValue();
 					if (successIndicator)
 					{
 						// Get service name
-		    			final HLAunicodeString serviceDecoder = _encoderFactory.createHLAunicodeString();
-		    			serviceDecoder.decode(theParameters.get(serviceId));
-		    			String serviceName = serviceDecoder.getValue();
+		    			_stringDecoder.decode(theParameters.get(serviceId));
+		    			String serviceName = _stringDecoder.getValue();
 //						logger.debug("serviceName: " + serviceName);
 		    			// Update services
-		    			HlaResultServicesModel.updateState(serviceName);
+		    			phaseTimer.mark(HLA_Services_PhaseTimer.FIRST_REPORT);
+		    			serviceStates.mark(serviceName);
 					}
 				}
 	    		catch (DecoderException e) {
-	                logger.error("Failed to decode incoming attribute");
+	                logCallbackError("Failed to decode incoming attribute");
 	                return;
 	 			}
 			}
 		}
     	catch (InvalidInteractionClassHandle | FederateNotExecutionMember	| NotConnected | RTIinternalError e) {
-            logger.error("Failed to decode incoming attribute");
+            logCallbackError("Failed to decode incoming attribute");
             return;
 		}
     }
@@ -521,6 +899,20 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
      */
     @Override
     public void discoverObjectInstance(final ObjectInstanceHandle theObject, final ObjectClassHandle theObjectClass, final String objectName) throws FederateInternalError {
+    	lastCallbackNanos = System.nanoTime();
+    	// Request the attributes of the new federate, it may be the SuT
+    	if ((sutDiscovery != null) && theObjectClass.equals(federateClassId))
+    		sutDiscovery.onDiscovered(theObject);
+    }
+
+
+    // 6.9
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void discoverObjectInstance(final ObjectInstanceHandle theObject, final ObjectClassHandle theObjectClass, final String objectName, final FederateHandle producingFederate) throws FederateInternalError {
+    	this.discoverObjectInstance(theObject, theObjectClass, objectName);
     }
 
 
@@ -539,9 +931,9 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
     	if (theObject.toString().equals(sutHandle.toString()))
 		{
             // Force resign, destroy & disconnect services validation
-            HlaResultServicesModel.updateState("resignFederationExecution");
-            HlaResultServicesModel.updateState("destroyFederationExecution");
-            HlaResultServicesModel.updateState("disconnect");
+            serviceStates.mark("resignFederationExecution");
+            serviceStates.mark("destroyFederationExecution");
+            serviceStates.mark("disconnect");
 		}
     }
 
@@ -551,6 +943,10 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
      * @param theAttributes the map of attribute handle / value
      */
     public void doReflectAttributeValues(final ObjectInstanceHandle theObject, final AttributeHandleValueMap theAttributes) {
+
+    	if (soakMonitor != null)
+    		soakMonitor.onCallback();
+    	lastCallbackNanos = System.nanoTime();
     	
     	// SuT
 		String federateName = null;
@@ -558,12 +954,11 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 		
 		if (theAttributes.containsKey(federateNameId)) {
     		try {
-    			final HLAunicodeString stringDecoder = _encoderFactory.createHLAunicodeString();
-				stringDecoder.decode(theAttributes.get(federateNameId));
-				federateName = stringDecoder.getValue();
+				_stringDecoder.decode(theAttributes.get(federateNameId));
+				federateName = _stringDecoder.getValue();
 				
 			} catch (DecoderException e) {
-                logger.error("Failed to decode incoming attribute");
+                logCallbackError("Failed to decode incoming attribute");
                 return;
  			}
     	}
@@ -577,29 +972,29 @@ public class HLA_Services_BaseModel extends IVCT_BaseModel {
 			if (needToFollowFederate(federateHandle) == false) {
 	            logger.info("following federate " + sutName);
 	            sutHandle = federateHandle;
+	            phaseTimer.mark(HLA_Services_PhaseTimer.SUT_DISCOVERED);
 	            // Force connect, create & join services validation
-	            HlaResultServicesModel.updateState("connect");
-	            HlaResultServicesModel.updateState("createFederationExecution");
-	            HlaResultServicesModel.updateState("joinFederationExecution");
+	            serviceStates.mark("connect");
+	            serviceStates.mark("createFederationExecution");
+	            serviceStates.mark("joinFederationExecution");
 	            // To be moved in removeObjectInstance callback of the SuT
 	            // Force resign, destroy & disconnect services validation
-	            HlaResultServicesModel.updateState("resignFederationExecution");
-	            HlaResultServicesModel.updateState("destroyFederationExecution");
-	            HlaResultServicesModel.updateState("disconnect");
+	            serviceStates.mark("resignFederationExecution");
+	            serviceStates.mark("destroyFederationExecution");
+	            serviceStates.mark("disconnect");
 			}
 		}
     	
     	// Federation
     	if (theAttributes.containsKey(federationRTIVersionId)) {
     		try {
-    			final HLAunicodeString stringDecoder = _encoderFactory.createHLAunicodeString();
-				stringDecoder.decode(theAttributes.get(federationRTIVersionId));
-				final String RTIversion = stringDecoder.getValue();
+				_stringDecoder.decode(theAttributes.get(federationRTIVersionId));
+				final String RTIversion = _stringDecoder.getValue();
 				
 				logger.debug("RTI version = " + RTIversion);
 
     		} catch (DecoderException e) {
-                logger.error("Failed to decode incoming attribute");
+                logCallbackError("Failed to decode incoming attribute");
                 return;
  			}
     	}
@@ -0,0 +1,241 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import hla.rti1516e.CallbackModel;
+import hla.rti1516e.FederateHandle;
+import hla.rti1516e.InteractionClassHandle;
+import hla.rti1516e.LogicalTime;
+import hla.rti1516e.MessageRetractionHandle;
+import hla.rti1516e.NullFederateAmbassador;
+import hla.rti1516e.OrderType;
+import hla.rti1516e.ParameterHandleValueMap;
+import hla.rti1516e.RTIambassador;
+import hla.rti1516e.ResignAction;
+import hla.rti1516e.RtiFactoryFactory;
+import hla.rti1516e.TransportationTypeHandle;
+import hla.rti1516e.exceptions.FederatesCurrentlyJoined;
+import hla.rti1516e.exceptions.FederationExecutionAlreadyExists;
+import hla.rti1516e.exceptions.FederationExecutionDoesNotExist;
+
+import org.slf4j.helpers.NOPLogger;
+
+/**
+ * Compare the HLAreportServiceInvocation throughput and latency of the
+ * HLA_IMMEDIATE and HLA_EVOKED callback models.
+ * <p>
+ * A sender federate invokes a support service while its service reporting is
+ * on; the receiver federate gets one report per invocation, as the test case
+ * does for the SUT. Each callback model is measured twice:
+ * <ul>
+ * <li>saturation : invocations sent as fast as possible, only the report
+ * throughput is meaningful since the latency is then mostly queueing,</li>
+ * <li>paced : invocations sent at sendRate per second, the latency pairs the
+ * n-th invocation with the n-th report.</li>
+ * </ul>
+ * Late warm up reports are drained before each measure.
+ * <p>
+ * Arguments : settingsDesignator [reportCount [sendRate [evokeMinWait evokeMaxWait [FOM files...]]]]
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_CallbackBenchmark {
+
+	private static final String FEDERATION_NAME = "HLA_Services_callback_benchmark";
+	private static final String REPORT_CLASS = "HLAmanager.HLAfederate.HLAreport.HLAreportServiceInvocation";
+	private static final String REPORTING_CLASS = "HLAmanager.HLAfederate.HLAadjust.HLAsetServiceReporting";
+	private static final long TIMEOUT_MS = 60000;
+	// No report for this long : nothing left in flight
+	private static final long QUIET_MS = 500;
+
+
+	/**
+	 * Receiver federate ambassador : time stamps the reports
+	 */
+	private static class ReportReceiver extends NullFederateAmbassador {
+		private InteractionClassHandle reportClass;
+		private AtomicLongArray receiveTimes;
+		private final AtomicInteger count = new AtomicInteger();
+
+		private void onInteraction(final InteractionClassHandle interactionClass) {
+			if (interactionClass.equals(reportClass)) {
+				long now = System.nanoTime();
+				int index = count.getAndIncrement();
+				if (index < receiveTimes.length())
+					receiveTimes.set(index, now);
+			}
+		}
+
+		// Wait until no report arrives for QUIET_MS, then restart the count
+		private void drain() throws InterruptedException {
+			long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+			int last;
+			do {
+				last = count.get();
+				Thread.sleep(QUIET_MS);
+			} while ((count.get() != last) && (System.currentTimeMillis() < deadline));
+			count.set(0);
+		}
+
+		@Override
+		public void receiveInteraction(final InteractionClassHandle interactionClass, final ParameterHandleValueMap theParameters, final byte[] userSuppliedTag, final OrderType sentOrdering, final TransportationTypeHandle theTransport, final SupplementalReceiveInfo receiveInfo) {
+			onInteraction(interactionClass);
+		}
+
+		@Override
+		public void receiveInteraction(final InteractionClassHandle interactionClass, final ParameterHandleValueMap theParameters, final byte[] userSuppliedTag, final OrderType sentOrdering, final TransportationTypeHandle theTransport, final LogicalTime theTime, final OrderType receivedOrdering, final SupplementalReceiveInfo receiveInfo) {
+			onInteraction(interactionClass);
+		}
+
+		@Override
+		public void receiveInteraction(final InteractionClassHandle interactionClass, final ParameterHandleValueMap theParameters, final byte[] userSuppliedTag, final OrderType sentOrdering, final TransportationTypeHandle theTransport, final LogicalTime theTime, final OrderType receivedOrdering, final MessageRetractionHandle retractionHandle, final SupplementalReceiveInfo receiveInfo) {
+			onInteraction(interactionClass);
+		}
+	}
+
+
+	public static void main(final String[] args) throws Exception {
+
+		if (args.length < 1) {
+			System.err.println("usage: settingsDesignator [reportCount [sendRate [evokeMinWait evokeMaxWait [FOM files...]]]]");
+			System.exit(1);
+		}
+		String settingsDesignator = args[0];
+		int reportCount = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+		int sendRate = (args.length > 2) ? Integer.parseInt(args[2]) : 1000;
+		double minWait = (args.length > 4) ? Double.parseDouble(args[3]) : 0.1;
+		double maxWait = (args.length > 4) ? Double.parseDouble(args[4]) : 0.5;
+		URL[] fomModules = new URL[Math.max(0, args.length - 5)];
+		for (int i = 0; i < fomModules.length; i++)
+			fomModules[i] = new File(args[5 + i]).toURI().toURL();
+
+		System.out.println(String.format("%-14s %-12s %10s %12s %10s %10s %10s %10s", "mode", "sending", "reports", "reports/s", "p50 (us)", "p90 (us)", "p99 (us)", "max (us)"));
+		for (CallbackModel callbackModel : new CallbackModel[] { CallbackModel.HLA_IMMEDIATE, CallbackModel.HLA_EVOKED })
+			run(callbackModel, settingsDesignator, fomModules, reportCount, Math.max(1, sendRate), minWait, maxWait);
+	}
+
+
+	private static void run(final CallbackModel callbackModel, final String settingsDesignator, final URL[] fomModules, final int reportCount, final int sendRate, final double minWait, final double maxWait) throws Exception {
+
+		// Receiver, with the callback model under test
+		ReportReceiver receiver = new ReportReceiver();
+		receiver.receiveTimes = new AtomicLongArray(reportCount);
+		RTIambassador receiverRti = RtiFactoryFactory.getRtiFactory().getRtiAmbassador();
+		receiverRti.connect(receiver, callbackModel, settingsDesignator);
+		try {
+			receiverRti.createFederationExecution(FEDERATION_NAME, fomModules);
+		}
+		catch (FederationExecutionAlreadyExists e) {
+			// Left by a previous run
+		}
+		receiverRti.joinFederationExecution("receiver", "HLA_Services_benchmark", FEDERATION_NAME);
+		HLA_Services_EvokedCallbackLoop callbackLoop = null;
+		if (callbackModel == CallbackModel.HLA_EVOKED) {
+			callbackLoop = new HLA_Services_EvokedCallbackLoop(NOPLogger.NOP_LOGGER, receiverRti, minWait, maxWait);
+			callbackLoop.start("HLA_Services_benchmark_evoke");
+		}
+
+		// Sender, reporting its service invocations
+		RTIambassador senderRti = RtiFactoryFactory.getRtiFactory().getRtiAmbassador();
+		senderRti.connect(new NullFederateAmbassador(), CallbackModel.HLA_IMMEDIATE, settingsDesignator);
+		FederateHandle senderHandle = senderRti.joinFederationExecution("sender", "HLA_Services_benchmark", FEDERATION_NAME);
+
+		receiver.reportClass = receiverRti.getInteractionClassHandle(REPORT_CLASS);
+		receiverRti.subscribeInteractionClass(receiver.reportClass);
+		InteractionClassHandle reportingClass = receiverRti.getInteractionClassHandle(REPORTING_CLASS);
+		receiverRti.publishInteractionClass(reportingClass);
+		ParameterHandleValueMap parameters = receiverRti.getParameterHandleValueMapFactory().create(2);
+		parameters.put(receiverRti.getParameterHandle(reportingClass, "HLAfederate"), senderHandle.toByteArray());
+		parameters.put(receiverRti.getParameterHandle(reportingClass, "HLAreportingState"), receiverRti.getEncoderFactory().createHLAboolean(true).toByteArray());
+		receiverRti.sendInteraction(reportingClass, parameters, null);
+
+		// Warm up : wait for the first report
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while ((receiver.count.get() == 0) && (System.currentTimeMillis() < deadline)) {
+			senderRti.getObjectClassHandle("HLAobjectRoot");
+			Thread.sleep(10);
+		}
+
+		// Saturation throughput, then latency at a sustainable rate
+		measure(callbackModel, "saturation", receiver, senderRti, reportCount, 0);
+		measure(callbackModel, sendRate + "/s", receiver, senderRti, reportCount, 1000000000L / sendRate);
+
+		// Clean up
+		if (callbackLoop != null)
+			callbackLoop.stop();
+		senderRti.resignFederationExecution(ResignAction.NO_ACTION);
+		senderRti.disconnect();
+		receiverRti.resignFederationExecution(ResignAction.DELETE_OBJECTS_THEN_DIVEST);
+		try {
+			receiverRti.destroyFederationExecution(FEDERATION_NAME);
+		}
+		catch (FederatesCurrentlyJoined | FederationExecutionDoesNotExist e) {
+			// Nothing to do
+		}
+		receiverRti.disconnect();
+	}
+
+
+	private static void measure(final CallbackModel callbackModel, final String sending, final ReportReceiver receiver, final RTIambassador senderRti, final int reportCount, final long sendIntervalNanos) throws Exception {
+
+		receiver.drain();
+
+		long[] sendTimes = new long[reportCount];
+		long start = System.nanoTime();
+		for (int i = 0; i < reportCount; i++) {
+			// Paced : i-th invocation not before start + i intervals
+			if (sendIntervalNanos > 0) {
+				long due = start + i * sendIntervalNanos;
+				while (System.nanoTime() < due)
+					Thread.yield();
+			}
+			sendTimes[i] = System.nanoTime();
+			senderRti.getObjectClassHandle("HLAobjectRoot");
+		}
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while ((receiver.count.get() < reportCount) && (System.currentTimeMillis() < deadline))
+			Thread.sleep(1);
+
+		int received = Math.min(receiver.count.get(), reportCount);
+		double throughput = (received > 0) ? received * 1e9 / (receiver.receiveTimes.get(received - 1) - sendTimes[0]) : 0;
+		if (sendIntervalNanos == 0) {
+			// Queueing dominates : no latency figures
+			System.out.println(String.format("%-14s %-12s %10d %12.0f %10s %10s %10s %10s", callbackModel, sending, received, throughput, "-", "-", "-", "-"));
+			return;
+		}
+		long[] latencies = new long[received];
+		for (int i = 0; i < received; i++)
+			latencies[i] = (receiver.receiveTimes.get(i) - sendTimes[i]) / 1000;
+		Arrays.sort(latencies);
+		System.out.println(String.format("%-14s %-12s %10d %12.0f %10d %10d %10d %10d", callbackModel, sending, received, throughput,
+				percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99), percentile(latencies, 1.0)));
+	}
+
+
+	private static long percentile(final long[] sortedValues, final double percentile) {
+		if (sortedValues.length == 0)
+			return 0;
+		int index = (int) Math.ceil(percentile * sortedValues.length) - 1;
+		return sortedValues[Math.max(0, Math.min(index, sortedValues.length - 1))];
+	}
+}
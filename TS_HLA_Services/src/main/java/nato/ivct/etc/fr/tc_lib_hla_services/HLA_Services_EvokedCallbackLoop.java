@@ -0,0 +1,108 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import hla.rti1516e.RTIambassador;
+import hla.rti1516e.exceptions.CallNotAllowedFromWithinCallback;
+import hla.rti1516e.exceptions.RTIinternalError;
+
+import org.slf4j.Logger;
+
+/**
+ * Callback delivery thread of the HLA_EVOKED callback model: callbacks are
+ * processed in batches by evokeMultipleCallbacks on a thread owned by the test case.
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_EvokedCallbackLoop implements Runnable {
+
+	private Logger                  logger;
+	private RTIambassador           rtiAmbassador;
+	private double                  minWait;
+	private double                  maxWait;
+	private Thread                  thread;
+	private volatile boolean        running = false;
+	private volatile long           evokeCount = 0;
+
+
+	/**
+	 * @param logger reference to a logger
+	 * @param rtiAmbassador RTI ambassador connected with HLA_EVOKED
+	 * @param minWait minimum wait of evokeMultipleCallbacks in seconds
+	 * @param maxWait maximum wait of evokeMultipleCallbacks in seconds
+	 */
+	public HLA_Services_EvokedCallbackLoop(final Logger logger, final RTIambassador rtiAmbassador, final double minWait, final double maxWait) {
+		this.logger = logger;
+		this.rtiAmbassador = rtiAmbassador;
+		this.minWait = minWait;
+		this.maxWait = maxWait;
+	}
+
+
+	/**
+	 * Start the callback thread
+	 * @param name thread name
+	 */
+	public synchronized void start(final String name) {
+		if (thread != null)
+			return;
+		running = true;
+		thread = new Thread(this, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+
+	/**
+	 * Stop the callback thread, after the batch in progress
+	 */
+	public synchronized void stop() {
+		if (thread == null)
+			return;
+		running = false;
+		try {
+			thread.join((long) (maxWait * 1000) + 1000);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+
+
+	/**
+	 * @return number of evokeMultipleCallbacks calls
+	 */
+	public long getEvokeCount() {
+		return evokeCount;
+	}
+
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				rtiAmbassador.evokeMultipleCallbacks(minWait, maxWait);
+				evokeCount++;
+			}
+			catch (CallNotAllowedFromWithinCallback | RTIinternalError e) {
+				logger.error("Callback processing stopped: " + e.getMessage());
+				running = false;
+			}
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.fraunhofer.iosb.tc_lib.IVCT_LoggingFederateAmbassador;
+import de.fraunhofer.iosb.tc_lib.IVCT_RTI_Factory;
+import de.fraunhofer.iosb.tc_lib.IVCT_RTIambassador;
+import nato.ivct.etc.fr.fctt_common.utils.FCTT_Constant;
+import nato.ivct.etc.fr.fctt_common.utils.FCTT_Environment;
+import nato.ivct.etc.fr.fctt_common.utils.TextInternationalization;
+
+import org.slf4j.Logger;
+
+/**
+ * Federation executions monitored by one test case: the main one, managed by
+ * the test case itself, and the additional ones of the "federations" parameter.
+ * Every federation execution has its own RTI ambassador and base model, so
+ * the callbacks of the federations are delivered by separate threads; the FOM
+ * and SOM data model is loaded once and shared.
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_FederationGroup {
+
+	private Logger                          logger;
+	private HLA_Services_TcParam            mainTcParam;
+	private HLA_Services_BaseModel          mainBaseModel;
+	private List<HLA_Services_TcParam>      tcParams = new ArrayList<HLA_Services_TcParam>();
+	private List<HLA_Services_BaseModel>    baseModels = new ArrayList<HLA_Services_BaseModel>();
+	private List<IVCT_LoggingFederateAmbassador> federateAmbassadors = new ArrayList<IVCT_LoggingFederateAmbassador>();
+	private File                            combinedResultFile;
+
+
+	/**
+	 * @param logger reference to a logger
+	 * @param mainTcParam parameters of the main federation execution
+	 * @param mainBaseModel base model of the main federation execution
+	 */
+	public HLA_Services_FederationGroup(final Logger logger, final HLA_Services_TcParam mainTcParam, final HLA_Services_BaseModel mainBaseModel) {
+
+		this.logger = logger;
+		this.mainTcParam = mainTcParam;
+		this.mainBaseModel = mainBaseModel;
+
+		// One RTI ambassador and base model per additional federation
+		for (HLA_Services_TcParam tcParam : mainTcParam.getAdditionalFederations()) {
+			IVCT_RTIambassador ivct_rti = IVCT_RTI_Factory.getIVCT_RTI(logger);
+			HLA_Services_BaseModel baseModel = new HLA_Services_BaseModel(logger, ivct_rti, tcParam);
+			tcParams.add(tcParam);
+			baseModels.add(baseModel);
+			federateAmbassadors.add(new IVCT_LoggingFederateAmbassador(baseModel, logger));
+		}
+
+		String combinedFileName = "HLA_Services_combined_services_" + FCTT_Environment.getDateForFileName() + FCTT_Constant.REPORT_FILE_NAME_EX;
+		combinedResultFile = new File(mainTcParam.getResultDir() + File.separator + combinedFileName);
+	}
+
+
+	/**
+	 * Load the FOM and SOM files once for all the federation executions
+	 * @return True if the FOM and SOM files are valid, false if not
+	 */
+	public boolean loadFomSomFiles() {
+
+		if (!mainBaseModel.loadFomSomFiles())
+			return false;
+		for (HLA_Services_BaseModel baseModel : baseModels)
+			baseModel.useFomSomModel(mainBaseModel);
+		return true;
+	}
+
+
+	/**
+	 * Join the additional federation executions, in parallel
+	 * @param federateName test federate name
+	 * @return true means error, false means correct
+	 */
+	public boolean initiateRti(final String federateName) {
+
+		if (baseModels.isEmpty())
+			return false;
+
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+		for (int i = 0; i < baseModels.size(); i++) {
+			final HLA_Services_BaseModel baseModel = baseModels.get(i);
+			final HLA_Services_TcParam tcParam = tcParams.get(i);
+			final IVCT_LoggingFederateAmbassador federateAmbassador = federateAmbassadors.get(i);
+			tasks.add(() -> {
+				baseModel.getPhaseTimer().mark(HLA_Services_PhaseTimer.INITIATE_RTI_START);
+				baseModel.initiateRti(federateName, federateAmbassador);
+				baseModel.getPhaseTimer().mark(HLA_Services_PhaseTimer.INITIATE_RTI_END);
+				baseModel.startCallbackProcessing();
+				if (baseModel.init(tcParam.getSutName())) {
+					logger.error(TextInternationalization.getString("etc_fra.initError") + " : " + tcParam.getFederationName());
+					return true;
+				}
+				return false;
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+		boolean error = false;
+		try {
+			for (Future<Boolean> result : executor.invokeAll(tasks)) {
+				try {
+					error |= result.get();
+				}
+				catch (Exception e) {
+					logger.error(TextInternationalization.getString("etc_fra.initError") + " : " + e.getMessage());
+					error = true;
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			error = true;
+		}
+		finally {
+			executor.shutdown();
+		}
+		return error;
+	}
+
+
+	/**
+	 * Write the result files of every federation execution and the combined report
+	 * @return True if the declarations are validated in every federation execution, false if not
+	 */
+	public boolean validateServices() {
+
+		boolean validated = mainBaseModel.validateServices();
+		if (baseModels.isEmpty())
+			return validated;
+
+		for (HLA_Services_BaseModel baseModel : baseModels)
+			validated &= baseModel.validateServices();
+
+		try {
+			writeCombinedReport();
+			logger.info(" - " + combinedResultFile.getAbsolutePath());
+		}
+		catch (IOException e) {
+			logger.error(String.format(TextInternationalization.getString("etc_fra.resultDirError"), combinedResultFile.getAbsolutePath()) + " : " + e.getMessage());
+			return false;
+		}
+		return validated;
+	}
+
+
+	/**
+	 * Leave the additional federation executions
+	 */
+	public void terminateRti() {
+		for (HLA_Services_BaseModel baseModel : baseModels) {
+			baseModel.stopCallbackProcessing();
+			baseModel.terminateRti();
+			baseModel.writePhaseTimes();
+		}
+	}
+
+
+	private void writeCombinedReport() throws IOException {
+
+		String formatter = "%-30s %-30s %10s %14s   %s%n";
+		try (FileWriter writer = new FileWriter(combinedResultFile)) {
+			writer.write("###########################################################\r\n");
+			writer.write("Date : " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy_MM_dd_HH'h'mm'm'ss's'")) + "\r\n");
+			writer.write("###########################################################\r\n");
+			writer.write("\r\n");
+			writer.write(String.format(formatter,
+					TextInternationalization.getString("resultsFile.headerColumns.federation"),
+					TextInternationalization.getString("resultsFile.headerColumns.sut"),
+					TextInternationalization.getString("resultsFile.headerColumns.certified"),
+					TextInternationalization.getString("resultsFile.headerColumns.notCertified"),
+					TextInternationalization.getString("resultsFile.headerColumns.resultFiles")));
+			writeCombinedLine(writer, formatter, mainTcParam, mainBaseModel);
+			for (int i = 0; i < baseModels.size(); i++)
+				writeCombinedLine(writer, formatter, tcParams.get(i), baseModels.get(i));
+		}
+	}
+
+
+	private static void writeCombinedLine(final FileWriter writer, final String formatter, final HLA_Services_TcParam tcParam, final HLA_Services_BaseModel baseModel) throws IOException {
+		writer.write(String.format(formatter, tcParam.getFederationName(), tcParam.getSutName(),
+				baseModel.getCertifiedServicesCount(), baseModel.getNonCertifiedServicesCount(),
+				baseModel.getCertifiedServicesResultFile().getName() + ", " + baseModel.getNonCertifiedServicesResultFile().getName()));
+	}
+}
@@ -0,0 +1,260 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Generator of synthetic IEEE 1516-2010 FOM and SOM modules of a given size,
+ * for the scaling benchmark of the FOM/SOM loading and of the result files.
+ * <p>
+ * Every module holds its own object and interaction classes under the root
+ * classes, with MIM data types only, so the modules are independent. The SOM
+ * modules have the same classes as the FOM modules; the first one also holds
+ * the service utilization, with the first declaredServices services used.
+ * <p>
+ * Arguments : outputDir modules classesPerModule declaredServices
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ModelGenerator {
+
+	private static final String OMT_NAMESPACE = "http://standards.ieee.org/IEEE1516-2010";
+	private static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+	private static final String OMT_SCHEMA = OMT_NAMESPACE + " http://standards.ieee.org/downloads/1516/1516.2-2010/IEEE1516-DIF-2010.xsd";
+
+	private static final int ATTRIBUTES_PER_CLASS = 4;
+	private static final int PARAMETERS_PER_CLASS = 4;
+	private static final String[] DATA_TYPES = { "HLAinteger32BE", "HLAfloat64BE", "HLAunicodeString", "HLAboolean" };
+
+	// Service utilization elements, in IEEE1516-DIF-2010 schema order
+	private static final List<String> SERVICES = HLA_Services_ServiceNames.getServiceNames();
+
+	private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+	private int modules;
+	private int classesPerModule;
+	private int declaredServices;
+
+
+	/**
+	 * @param modules number of FOM modules, and of SOM modules
+	 * @param classesPerModule number of object classes, and of interaction classes, per module
+	 * @param declaredServices number of services declared as used by the SOM, bounded by the number of HLA services
+	 */
+	public HLA_Services_ModelGenerator(final int modules, final int classesPerModule, final int declaredServices) {
+		this.modules = Math.max(1, modules);
+		this.classesPerModule = Math.max(0, classesPerModule);
+		this.declaredServices = Math.max(0, Math.min(declaredServices, SERVICES.size()));
+	}
+
+
+	/**
+	 * @return the HLA services of the service utilization section
+	 */
+	public static List<String> getServiceNames() {
+		return SERVICES;
+	}
+
+
+	/**
+	 * @return the services the generated SOM declares as used
+	 */
+	public List<String> getDeclaredServices() {
+		return SERVICES.subList(0, declaredServices);
+	}
+
+
+	/**
+	 * @return the number of FOM modules, and of SOM modules
+	 */
+	public int getModuleCount() {
+		return modules;
+	}
+
+
+	/**
+	 * @return total number of object and interaction classes of the generated FOM
+	 */
+	public int getClassCount() {
+		return 2 * modules * classesPerModule;
+	}
+
+
+	/**
+	 * Write the FOM modules
+	 * @param directory output directory
+	 * @return the FOM file names
+	 * @throws IOException if a file cannot be written
+	 */
+	public List<String> writeFomModules(final File directory) throws IOException {
+		return writeModules(directory, "FOM");
+	}
+
+
+	/**
+	 * Write the SOM modules
+	 * @param directory output directory
+	 * @return the SOM file names
+	 * @throws IOException if a file cannot be written
+	 */
+	public List<String> writeSomModules(final File directory) throws IOException {
+		return writeModules(directory, "SOM");
+	}
+
+
+	private List<String> writeModules(final File directory, final String type) throws IOException {
+
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create " + directory.getAbsolutePath());
+
+		List<String> files = new ArrayList<String>();
+		for (int module = 1; module <= modules; module++) {
+			File file = new File(directory, "Synthetic_" + type + "_" + module + ".xml");
+			try (OutputStream output = new FileOutputStream(file)) {
+				XMLStreamWriter writer = outputFactory.createXMLStreamWriter(output, "UTF-8");
+				try {
+					writeModule(writer, type, module, type.equals("SOM") && (module == 1));
+				}
+				finally {
+					writer.close();
+				}
+			}
+			catch (XMLStreamException e) {
+				throw new IOException("Cannot write " + file.getAbsolutePath() + ": " + e.getMessage(), e);
+			}
+			files.add(file.getAbsolutePath());
+		}
+		return files;
+	}
+
+
+	private void writeModule(final XMLStreamWriter writer, final String type, final int module, final boolean withServices) throws XMLStreamException {
+
+		writer.writeStartDocument("UTF-8", "1.0");
+		writer.writeStartElement("objectModel");
+		writer.writeDefaultNamespace(OMT_NAMESPACE);
+		writer.writeNamespace("xsi", XSI_NAMESPACE);
+		writer.writeAttribute(XSI_NAMESPACE, "schemaLocation", OMT_SCHEMA);
+
+		// Identification
+		writer.writeStartElement("modelIdentification");
+		writeText(writer, "name", "Synthetic_" + type + "_" + module);
+		writeText(writer, "type", type);
+		writeText(writer, "version", "1.0");
+		writeText(writer, "modificationDate", "2017-01-01");
+		writeText(writer, "securityClassification", "Unclassified");
+		writeText(writer, "purpose", "Scaling benchmark");
+		writeText(writer, "applicationDomain", "Test");
+		writeText(writer, "description", "Synthetic " + type + " module " + module + " of " + modules);
+		writer.writeEndElement();
+
+		// Services
+		if (withServices) {
+			writer.writeStartElement("serviceUtilization");
+			for (int i = 0; i < SERVICES.size(); i++) {
+				writer.writeEmptyElement(SERVICES.get(i));
+				writer.writeAttribute("isUsed", Boolean.toString(i < declaredServices));
+			}
+			writer.writeEndElement();
+		}
+
+		// Object classes
+		writer.writeStartElement("objects");
+		writer.writeStartElement("objectClass");
+		writeText(writer, "name", "HLAobjectRoot");
+		for (int c = 1; c <= classesPerModule; c++) {
+			writer.writeStartElement("objectClass");
+			writeText(writer, "name", "Synthetic" + module + "_Object" + c);
+			writeText(writer, "sharing", "PublishSubscribe");
+			writeText(writer, "semantics", "Synthetic object class");
+			for (int a = 1; a <= ATTRIBUTES_PER_CLASS; a++) {
+				writer.writeStartElement("attribute");
+				writeText(writer, "name", "Attribute" + a);
+				writeText(writer, "dataType", DATA_TYPES[a % DATA_TYPES.length]);
+				writeText(writer, "updateType", "Conditional");
+				writeText(writer, "updateCondition", "On change");
+				writeText(writer, "ownership", "NoTransfer");
+				writeText(writer, "sharing", "PublishSubscribe");
+				writeText(writer, "transportation", "HLAreliable");
+				writeText(writer, "order", "Receive");
+				writeText(writer, "semantics", "Synthetic attribute");
+				writer.writeEndElement();
+			}
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+		writer.writeEndElement();
+
+		// Interaction classes
+		writer.writeStartElement("interactions");
+		writer.writeStartElement("interactionClass");
+		writeText(writer, "name", "HLAinteractionRoot");
+		for (int c = 1; c <= classesPerModule; c++) {
+			writer.writeStartElement("interactionClass");
+			writeText(writer, "name", "Synthetic" + module + "_Interaction" + c);
+			writeText(writer, "sharing", "PublishSubscribe");
+			writeText(writer, "transportation", "HLAreliable");
+			writeText(writer, "order", "Receive");
+			writeText(writer, "semantics", "Synthetic interaction class");
+			for (int p = 1; p <= PARAMETERS_PER_CLASS; p++) {
+				writer.writeStartElement("parameter");
+				writeText(writer, "name", "Parameter" + p);
+				writeText(writer, "dataType", DATA_TYPES[p % DATA_TYPES.length]);
+				writeText(writer, "semantics", "Synthetic parameter");
+				writer.writeEndElement();
+			}
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+		writer.writeEndElement();
+
+		writer.writeEndElement();
+		writer.writeEndDocument();
+	}
+
+
+	private static void writeText(final XMLStreamWriter writer, final String element, final String text) throws XMLStreamException {
+		writer.writeStartElement(element);
+		writer.writeCharacters(text);
+		writer.writeEndElement();
+	}
+
+
+	public static void main(final String[] args) throws IOException {
+
+		if (args.length < 4) {
+			System.err.println("usage: outputDir modules classesPerModule declaredServices");
+			System.exit(1);
+		}
+		HLA_Services_ModelGenerator generator = new HLA_Services_ModelGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+		File directory = new File(args[0]);
+		for (String file : generator.writeFomModules(directory))
+			System.out.println(file);
+		for (String file : generator.writeSomModules(directory))
+			System.out.println(file);
+	}
+}
@@ -0,0 +1,346 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import nato.ivct.etc.fr.fctt_common.resultServices.model.ServiceHLA;
+
+/**
+ * Process wide registry of the FOM/SOM data models, so that the test
+ * executions of one runner JVM with the same FOM and SOM contents load them
+ * once. The key is the SHA-256 of the content hashes of the files, in
+ * parameters order, whatever their paths, SUT or result directory. The FOM/SOM
+ * check output is written by the execution which loads the model, in its
+ * result directory; the shared model tells where, so that every execution
+ * writes its own check record. Each test execution builds its own
+ * ResultServicesModel on top of the shared, read only, data model.
+ * <p>
+ * Models are reference counted. Unused models stay registered for the next
+ * test executions, and are evicted least recently used first when the
+ * estimated size of the registry goes past the limit (system property
+ * {@value #MAX_SIZE_PROPERTY}, in megabytes). Models in use are never evicted.
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ModelRegistry {
+
+	public static final String MAX_SIZE_PROPERTY = "hlaServices.modelRegistryMaxMB";
+	private static final long DEFAULT_MAX_SIZE_MB = 512;
+	// Heuristic, not measured at run time: the EMF/SME model of an OMT file takes
+	// several times the size of its XML. With 10, the default limit holds about
+	// 50 MB of FOM/SOM files. The heapKB measure of HLA_Services_ScalingBenchmark
+	// gives the actual ratio of a model.
+	private static final long BYTES_PER_FILE_BYTE = 10;
+
+	private static final HLA_Services_ModelRegistry instance = new HLA_Services_ModelRegistry(Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE_MB) * 1024 * 1024);
+
+	private long maxBytes;
+	private long totalBytes = 0;
+	// Access order : least recently used first
+	private Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+
+	/**
+	 * Shared FOM/SOM data, built once per content. Users only read it, see
+	 * {@link HLA_Services_BaseModel#useFomSomModel(HLA_Services_BaseModel)}
+	 */
+	public static class SharedModel {
+		private final ServiceHLA serviceModel;
+		private final Set<String> declaredServices;
+		private final String checkResultDir;
+		private final String checkSutName;
+
+		/**
+		 * @param serviceModel HLA data model built from the FOM and SOM files
+		 * @param declaredServices services declared as used by the SOMs
+		 * @param checkResultDir result directory of the FOM/SOM check output
+		 * @param checkSutName SUT name of the FOM/SOM check output
+		 */
+		public SharedModel(final ServiceHLA serviceModel, final Set<String> declaredServices, final String checkResultDir, final String checkSutName) {
+			this.serviceModel = serviceModel;
+			this.declaredServices = Collections.unmodifiableSet(declaredServices);
+			this.checkResultDir = checkResultDir;
+			this.checkSutName = checkSutName;
+		}
+
+		/**
+		 * @return the HLA data model, not to be modified
+		 */
+		public ServiceHLA getServiceModel() {
+			return serviceModel;
+		}
+
+		/**
+		 * @return the services declared as used by the SOMs, empty if they could not be read
+		 */
+		public Set<String> getDeclaredServices() {
+			return declaredServices;
+		}
+
+		/**
+		 * @return result directory of the FOM/SOM check output
+		 */
+		public String getCheckResultDir() {
+			return checkResultDir;
+		}
+
+		/**
+		 * @return SUT name of the FOM/SOM check output
+		 */
+		public String getCheckSutName() {
+			return checkSutName;
+		}
+	}
+
+
+	/**
+	 * Builds the shared data of FOM and SOM files not registered yet
+	 */
+	public interface Loader {
+		/**
+		 * @return the shared data, null if the files are not valid
+		 */
+		SharedModel load();
+	}
+
+
+	/**
+	 * Use of a registered model by one test execution, to be released once
+	 */
+	public class Lease {
+		private final Entry entry;
+		private final boolean shared;
+		private boolean released = false;
+
+		private Lease(final Entry entry, final boolean shared) {
+			this.entry = entry;
+			this.shared = shared;
+		}
+
+		/**
+		 * @return the shared data
+		 */
+		public SharedModel getModel() {
+			return entry.model.join();
+		}
+
+		/**
+		 * @return true if the model was loaded by another test execution
+		 */
+		public boolean isShared() {
+			return shared;
+		}
+
+		/**
+		 * Stop using the model, it may then be evicted
+		 */
+		public void release() {
+			synchronized (HLA_Services_ModelRegistry.this) {
+				if (released)
+					return;
+				released = true;
+				entry.refCount--;
+				evict();
+			}
+		}
+	}
+
+
+	private static class Entry {
+		private final String key;
+		private final long estimatedBytes;
+		private final CompletableFuture<SharedModel> model = new CompletableFuture<SharedModel>();
+		private int refCount = 0;
+
+		private Entry(final String key, final long estimatedBytes) {
+			this.key = key;
+			this.estimatedBytes = estimatedBytes;
+		}
+	}
+
+
+	/**
+	 * @param maxBytes estimated size above which unused models are evicted
+	 */
+	HLA_Services_ModelRegistry(final long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+
+	/**
+	 * @return the registry of the process
+	 */
+	public static HLA_Services_ModelRegistry getInstance() {
+		return instance;
+	}
+
+
+	/**
+	 * Get the model of FOM and SOM files, loading it if not registered. Concurrent
+	 * test executions with the same files wait for a single load.
+	 * @param fomFiles FOM file names
+	 * @param somFiles SOM file names
+	 * @param fileHashes content hash of the files, see HLA_Services_Preflight; files missing here are hashed
+	 * @param loader builds the model if not registered
+	 * @return the lease of the model, null if the files are not valid
+	 * @throws IOException if a file cannot be read
+	 */
+	public Lease acquire(final List<String> fomFiles, final List<String> somFiles, final Map<String, String> fileHashes, final Loader loader) throws IOException {
+
+		String key = computeKey(fomFiles, somFiles, fileHashes);
+		Entry entry;
+		boolean shared;
+		synchronized (this) {
+			entry = entries.get(key);
+			shared = (entry != null);
+			if (!shared) {
+				entry = new Entry(key, estimateBytes(fomFiles, somFiles));
+				entries.put(key, entry);
+				totalBytes += entry.estimatedBytes;
+			}
+			entry.refCount++;
+		}
+
+		// Load outside of the lock, other contents are not blocked
+		if (!shared) {
+			try {
+				entry.model.complete(loader.load());
+			}
+			catch (RuntimeException e) {
+				entry.model.complete(null);
+				discard(entry);
+				throw e;
+			}
+		}
+
+		SharedModel model;
+		try {
+			model = entry.model.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			model = null;
+		}
+		catch (ExecutionException e) {
+			model = null;
+		}
+		if (model == null) {
+			// Not valid : nothing to keep
+			discard(entry);
+			return null;
+		}
+
+		synchronized (this) {
+			evict();
+		}
+		return new Lease(entry, shared);
+	}
+
+
+	/**
+	 * @return number of registered models
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+
+	/**
+	 * @return estimated size of the registered models in bytes
+	 */
+	public synchronized long getEstimatedBytes() {
+		return totalBytes;
+	}
+
+
+	private synchronized void discard(final Entry entry) {
+		entry.refCount--;
+		if (entries.get(entry.key) == entry) {
+			entries.remove(entry.key);
+			totalBytes -= entry.estimatedBytes;
+		}
+	}
+
+
+	// Least recently used unused models first, caller holds the lock
+	private void evict() {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while ((totalBytes > maxBytes) && iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if ((entry.refCount == 0) && entry.model.isDone()) {
+				iterator.remove();
+				totalBytes -= entry.estimatedBytes;
+			}
+		}
+	}
+
+
+	private static String computeKey(final List<String> fomFiles, final List<String> somFiles, final Map<String, String> fileHashes) throws IOException {
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-256 not available", e);
+		}
+		for (String fomFile : fomFiles)
+			digest.update(("FOM " + getHash(fomFile, fileHashes) + "\n").getBytes(StandardCharsets.US_ASCII));
+		for (String somFile : somFiles)
+			digest.update(("SOM " + getHash(somFile, fileHashes) + "\n").getBytes(StandardCharsets.US_ASCII));
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest())
+			hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+
+
+	/**
+	 * @param fileName FOM or SOM file name
+	 * @param fileHashes content hash of the files, see HLA_Services_Preflight
+	 * @return the content hash of the file, computed if not in fileHashes
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String getHash(final String fileName, final Map<String, String> fileHashes) throws IOException {
+		String hash = fileHashes.get(fileName);
+		return (hash != null) ? hash : HLA_Services_Preflight.hash(new File(fileName));
+	}
+
+
+	private static long estimateBytes(final List<String> fomFiles, final List<String> somFiles) {
+		long fileBytes = 0;
+		for (String fomFile : fomFiles)
+			fileBytes += new File(fomFile).length();
+		for (String somFile : somFiles)
+			fileBytes += new File(somFile).length();
+		return fileBytes * BYTES_PER_FILE_BYTE;
+	}
+}
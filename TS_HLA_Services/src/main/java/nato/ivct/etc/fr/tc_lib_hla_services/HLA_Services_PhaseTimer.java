@@ -0,0 +1,145 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.simple.JSONValue;
+
+/**
+ * Monotonic time stamps of the phases of a test execution, relative to the
+ * creation of the timer. Only the first occurrence of an event is kept, so
+ * callbacks can mark events without checking whether they already occurred.
+ * Events named xxxStart and xxxEnd also give the duration of phase xxx.
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_PhaseTimer {
+
+	// Events
+	public static final String PREAMBLE_START = "preambleStart";
+	public static final String FOM_LOAD_START = "fomLoadStart";
+	public static final String FOM_LOAD_END = "fomLoadEnd";
+	public static final String INITIATE_RTI_START = "initiateRtiStart";
+	public static final String INITIATE_RTI_END = "initiateRtiEnd";
+	public static final String INIT_START = "initStart";
+	public static final String INIT_END = "initEnd";
+	public static final String SUT_DISCOVERED = "sutDiscovered";
+	public static final String FIRST_REPORT = "firstReport";
+	public static final String FULL_COVERAGE = "fullCoverage";
+	public static final String VALIDATE_START = "validateStart";
+	public static final String VALIDATE_END = "validateEnd";
+
+	private static final String START = "Start";
+	private static final String END = "End";
+
+	private final long startNanos;
+	private final long jvmUptimeAtStartMs;
+	private final Map<String, Long> events = new ConcurrentHashMap<String, Long>();
+
+
+	public HLA_Services_PhaseTimer() {
+		this.startNanos = System.nanoTime();
+		this.jvmUptimeAtStartMs = ManagementFactory.getRuntimeMXBean().getUptime();
+	}
+
+
+	/**
+	 * Record the first occurrence of an event
+	 * @param event event name
+	 */
+	public void mark(final String event) {
+		events.putIfAbsent(event, System.nanoTime() - startNanos);
+	}
+
+
+	/**
+	 * Record the first occurrence of an event which happened earlier
+	 * @param event event name
+	 * @param nanoTime System.nanoTime() of the event
+	 */
+	public void markAt(final String event, final long nanoTime) {
+		events.putIfAbsent(event, nanoTime - startNanos);
+	}
+
+
+	/**
+	 * @param event event name
+	 * @return true if the event occurred
+	 */
+	public boolean hasOccurred(final String event) {
+		return events.containsKey(event);
+	}
+
+
+	/**
+	 * @param event event name
+	 * @return time of the event in milliseconds since the timer creation, -1 if it did not occur
+	 */
+	public double getTime(final String event) {
+		Long nanos = events.get(event);
+		return (nanos == null) ? -1 : nanos / 1e6;
+	}
+
+
+	/**
+	 * Write the events and phase durations as JSON
+	 * @param file output file
+	 * @param federationName federation name
+	 * @param sutName system under test name
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(final File file, final String federationName, final String sutName) throws IOException {
+
+		// Events in time order
+		List<Map.Entry<String, Long>> sortedEvents = new ArrayList<Map.Entry<String, Long>>(events.entrySet());
+		sortedEvents.sort(Map.Entry.comparingByValue());
+
+		Map<String, Object> eventTimes = new LinkedHashMap<String, Object>();
+		Map<String, Object> durations = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, Long> event : sortedEvents) {
+			eventTimes.put(event.getKey(), event.getValue() / 1e6);
+			if (event.getKey().endsWith(START)) {
+				String phase = event.getKey().substring(0, event.getKey().length() - START.length());
+				Long end = events.get(phase + END);
+				if (end != null)
+					durations.put(phase, (end - event.getValue()) / 1e6);
+			}
+		}
+
+		Map<String, Object> timing = new LinkedHashMap<String, Object>();
+		timing.put("federationName", federationName);
+		timing.put("sutName", sutName);
+		timing.put("unit", "ms");
+		timing.put("jvmUptimeAtStart", jvmUptimeAtStartMs);
+		timing.put("events", eventTimes);
+		timing.put("durations", durations);
+
+		try (FileWriter writer = new FileWriter(file)) {
+			writer.write(JSONValue.toJSONString(timing));
+			writer.write("\n");
+		}
+	}
+}
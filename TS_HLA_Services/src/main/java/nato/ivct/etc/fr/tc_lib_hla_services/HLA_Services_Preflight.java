@@ -0,0 +1,184 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.fraunhofer.iosb.tc_lib.TcInconclusive;
+import nato.ivct.etc.fr.fctt_common.utils.TextInternationalization;
+
+import org.slf4j.Logger;
+
+/**
+ * Checks of the test case parameters done before any RTI work, in parallel:
+ * every FOM and SOM file exists and is readable, its SHA-256 content hash is
+ * computed through memory mapped reads, and the result directory is writable.
+ * All the problems found are reported at once.
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_Preflight {
+
+	// Size of the memory mapped window
+	private static final long WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private Logger                  logger;
+	private HLA_Services_TcParam    tcParams;
+	// Content hash of every FOM and SOM file, in parameters order
+	private Map<String, String>     fileHashes = Collections.emptyMap();
+
+
+	/**
+	 * @param logger reference to a logger
+	 * @param tcParams parameters to check
+	 */
+	public HLA_Services_Preflight(final Logger logger, final HLA_Services_TcParam tcParams) {
+		this.logger = logger;
+		this.tcParams = tcParams;
+	}
+
+
+	/**
+	 * Run all the checks
+	 * @throws TcInconclusive listing every problem found
+	 */
+	public void check() throws TcInconclusive {
+
+		final long start = System.nanoTime();
+
+		Set<String> files = new LinkedHashSet<String>();
+		files.addAll(tcParams.getFomFiles());
+		files.addAll(tcParams.getSomFiles());
+
+		List<String> fileNames = new ArrayList<String>(files);
+		List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+		for (final String fileName : fileNames)
+			tasks.add(() -> hash(new File(fileName)));
+		tasks.add(() -> checkResultDir(tcParams.getResultDir()));
+
+		List<String> errors = new ArrayList<String>();
+		Map<String, String> hashes = new LinkedHashMap<String, String>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+		try {
+			List<Future<String>> results = executor.invokeAll(tasks);
+			for (int i = 0; i < results.size(); i++) {
+				try {
+					String result = results.get(i).get();
+					if (i < fileNames.size())
+						hashes.put(fileNames.get(i), result);
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					errors.add((cause.getMessage() != null) ? cause.getMessage() : cause.getClass().getName());
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TcInconclusive(TextInternationalization.getString("hlaservices.preflightInterrupted"));
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		if (!errors.isEmpty()) {
+			for (String error : errors)
+				logger.error(TextInternationalization.getString("hlaservices.preflightError") + " : " + error);
+			throw new TcInconclusive(String.join("; ", errors));
+		}
+
+		fileHashes = Collections.unmodifiableMap(hashes);
+		for (Map.Entry<String, String> fileHash : fileHashes.entrySet())
+			logger.debug(fileHash.getValue() + "  " + fileHash.getKey());
+		logger.info(String.format(TextInternationalization.getString("hlaservices.preflightDone"), fileNames.size(), (System.nanoTime() - start) / 1000000));
+	}
+
+
+	/**
+	 * @return SHA-256 content hash (hexadecimal) of every FOM and SOM file, empty before check()
+	 */
+	public Map<String, String> getFileHashes() {
+		return fileHashes;
+	}
+
+
+	/**
+	 * @param file file to hash
+	 * @return SHA-256 content hash, hexadecimal
+	 * @throws IOException if the file does not exist or cannot be read
+	 */
+	public static String hash(final File file) throws IOException {
+
+		if (!file.isFile())
+			throw new IOException(String.format(TextInternationalization.getString("etc_fra.fileNotFound"), file.getPath()));
+		if (!file.canRead())
+			throw new IOException(String.format(TextInternationalization.getString("etc_fra.fileNotReadable"), file.getPath()));
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-256 not available", e);
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			for (long position = 0; position < size; position += WINDOW_SIZE)
+				digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position)));
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest())
+			hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+
+
+	private static String checkResultDir(final String resultDir) throws IOException {
+
+		File directory = new File(resultDir);
+		if (!directory.isDirectory())
+			throw new IOException(String.format(TextInternationalization.getString("etc_fra.resultDirError"), resultDir));
+		// Effective right, not only the permission bits
+		try {
+			File probe = File.createTempFile("HLA_Services_preflight_", ".tmp", directory);
+			Files.delete(probe.toPath());
+		}
+		catch (IOException e) {
+			throw new IOException(String.format(TextInternationalization.getString("etc_fra.resultDirNotWritable"), resultDir) + " (" + e.getMessage() + ")", e);
+		}
+		return resultDir;
+	}
+}
@@ -0,0 +1,219 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import nato.ivct.etc.fr.fctt_common.utils.FCTT_Enum.eBuildResults;
+import nato.ivct.etc.fr.fctt_common.utils.TextInternationalization;
+
+/**
+ * Certified / non certified services result files written by
+ * {@link HLA_Services_BaseModel#validateServices()}: header and read back
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ResultReport {
+
+	// Result file name prefixes
+	public static final String CERTIFIED_PREFIX = "HLA_Services_certified_services_";
+	public static final String NON_CERTIFIED_PREFIX = "HLA_Services_non_certified_services_";
+
+	private static final String HEADER_SEPARATOR = "####";
+	private static final String DATE_PREFIX = "Date : ";
+
+	private String sutName;
+	private String date;
+	private boolean certified;
+	private List<String> services = new ArrayList<String>();
+
+
+	private HLA_Services_ResultReport() {
+	}
+
+
+    /**
+     * Return the header for the results files
+     * @param pSutName SUT name to write in the header
+     * @param pCurrentDate Current date to write in the header
+     * @param pBuildAction Adapts the header according to the type of result concerned
+     * @return String which contains the header
+     */
+    public static String writeHeader(String pSutName, String pCurrentDate, eBuildResults pBuildAction)
+    {
+    	String lHeader = "";
+    	String lExplanationContent = "";
+    	
+    	if (pBuildAction == eBuildResults.ServicesCertificated)
+    	{
+    		lExplanationContent = TextInternationalization.getString("resultsFile.header.services.certificated");
+    	}
+    	
+    	if (pBuildAction == eBuildResults.ServicesNotCertificated)
+    	{
+    		lExplanationContent = TextInternationalization.getString("resultsFile.header.services.notCertificated");
+    	}
+    	
+    	lHeader = lHeader+"###########################################################\r\n";
+    	lHeader = lHeader+TextInternationalization.getString("resultsFile.header")+" \""+pSutName+"\"\r\n";
+    	lHeader = lHeader+"Date : "+pCurrentDate;
+    	lHeader = lHeader+"\r\n";
+    	lHeader = lHeader+"\r\n";
+    	lHeader = lHeader+lExplanationContent;
+    	lHeader = lHeader+"\r\n";
+    	lHeader = lHeader+"\r\n";
+    	lHeader = lHeader+TextInternationalization.getString("resultsFile.header.explanations");
+    	lHeader = lHeader+"\r\n";
+    	lHeader = lHeader+"###########################################################\r\n";
+    	lHeader = lHeader+"\r\n";
+    	
+    	return lHeader;
+    }
+
+
+	/**
+	 * Parse a result file
+	 * @param reportFile certified or non certified services result file
+	 * @return the parsed report
+	 * @throws IOException if the file cannot be read
+	 */
+	public static HLA_Services_ResultReport parse(final File reportFile) throws IOException {
+
+		HLA_Services_ResultReport report = new HLA_Services_ResultReport();
+		report.certified = isCertifiedReport(reportFile);
+
+		try (BufferedReader reader = Files.newBufferedReader(reportFile.toPath(), Charset.defaultCharset())) {
+			int separators = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (separators < 2) {
+					// Header : SuT name between quotes, then date
+					if (line.startsWith(HEADER_SEPARATOR)) {
+						separators++;
+					}
+					else if (line.startsWith(DATE_PREFIX)) {
+						report.date = line.substring(DATE_PREFIX.length()).trim();
+					}
+					else if ((report.sutName == null) && (line.indexOf('"') >= 0) && (line.lastIndexOf('"') > line.indexOf('"'))) {
+						report.sutName = line.substring(line.indexOf('"') + 1, line.lastIndexOf('"'));
+					}
+				}
+				else {
+					String service = getServiceName(line);
+					if (service != null)
+						report.services.add(service);
+				}
+			}
+		}
+		return report;
+	}
+
+
+	/**
+	 * Extract the service names of the body of a result file
+	 * @param results text produced by ResultServicesModel.writeResults
+	 * @return service names in file order
+	 */
+	public static List<String> parseServiceLines(final String results) {
+
+		List<String> lServices = new ArrayList<String>();
+		try (BufferedReader reader = new BufferedReader(new StringReader(results))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String service = getServiceName(line);
+				if (service != null)
+					lServices.add(service);
+			}
+		}
+		catch (IOException e) {
+			// Cannot happen on a string
+		}
+		return lServices;
+	}
+
+
+	/**
+	 * Service lines start with the name of an HLA service, other lines (column
+	 * headers, explanations, separators) do not
+	 * @return the service name, null if the line is not a service line
+	 */
+	private static String getServiceName(final String line) {
+
+		int end = 0;
+		while ((end < line.length()) && !Character.isWhitespace(line.charAt(end)))
+			end++;
+		String name = line.substring(0, end);
+		return HLA_Services_ServiceNames.isService(name) ? name : null;
+	}
+
+
+	/**
+	 * @param reportFile a result file
+	 * @return true if the file is a certified services result file
+	 */
+	public static boolean isCertifiedReport(final File reportFile) {
+		return reportFile.getName().startsWith(CERTIFIED_PREFIX);
+	}
+
+
+	/**
+	 * @param reportFile a result file
+	 * @return true if the file is a certified or non certified services result file
+	 */
+	public static boolean isReport(final File reportFile) {
+		return reportFile.isFile() && (reportFile.getName().startsWith(CERTIFIED_PREFIX) || reportFile.getName().startsWith(NON_CERTIFIED_PREFIX));
+	}
+
+
+	/**
+	 * @return the SUT name found in the header, null if none
+	 */
+	public String getSutName() {
+		return this.sutName;
+	}
+
+
+	/**
+	 * @return the date found in the header, null if none
+	 */
+	public String getDate() {
+		return this.date;
+	}
+
+
+	/**
+	 * @return true if the report lists certified services
+	 */
+	public boolean isCertified() {
+		return this.certified;
+	}
+
+
+	/**
+	 * @return the service names listed in the report
+	 */
+	public List<String> getServices() {
+		return this.services;
+	}
+}
@@ -0,0 +1,442 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+import nato.ivct.etc.fr.fctt_common.utils.FCTT_Constant;
+import nato.ivct.etc.fr.fctt_common.utils.FCTT_Enum.eBuildResults;
+import nato.ivct.etc.fr.fctt_common.utils.FCTT_Environment;
+import nato.ivct.etc.fr.fctt_common.utils.TextInternationalization;
+
+/**
+ * Campaign view of the result directories of several runner nodes: which
+ * services each SUT got certified in at least one run.
+ * <p>
+ * The (SUT, service, state) records of the result files are sorted by SUT and
+ * service in bounded runs written to temporary files, then merged k files at
+ * a time (fan-in) until one pass is left, which writes the consolidated
+ * certified and non certified services files of every SUT in the format of
+ * {@link HLA_Services_BaseModel#validateServices()}: a service is certified if
+ * at least one run certified it. The number of runs certifying every service
+ * goes to a separate summary file. Memory depends on the run
+ * size, the fan-in and the number of services of one SUT, not on the number
+ * of result files. The temporary files are deleted by merge() or close().
+ * <p>
+ * Arguments : outputDir resultDir... [--fanIn n]
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ResultsMerger implements AutoCloseable {
+
+	public static final int DEFAULT_FAN_IN = 16;
+	// Tag of the consolidated files names, after the result file prefix
+	public static final String MERGED_TAG = "merged_";
+	// Run counts of the consolidated files
+	public static final String SUMMARY_PREFIX = "HLA_Services_merged_summary_";
+	// Records sorted in memory before spilling a run
+	private static final int DEFAULT_RUN_RECORDS = 100000;
+	private static final String SEPARATOR = "\t";
+	private static final String CERTIFIED = "C";
+	private static final String NOT_CERTIFIED = "N";
+	// SUT, service, runs certifying the service, runs of the SUT
+	private static final String SUMMARY_FORMATTER = "%-30s %-45s %14s %10s%n";
+
+	private File outputDir;
+	private int fanIn;
+	private int runRecords;
+	private File tempDir;
+	private List<File> runs = new ArrayList<File>();
+	private List<String> buffer = new ArrayList<String>();
+	// Result files per SUT
+	private Map<String, Integer> runsPerSut = new TreeMap<String, Integer>();
+	private int reportCount = 0;
+	private List<File> writtenFiles = new ArrayList<File>();
+	// SUT names already used in the file names
+	private Set<String> fileNames = new HashSet<String>();
+	private String date;
+	private BufferedWriter summary;
+	// Intermediate merge passes of the last merge()
+	private int mergePasses = 0;
+
+
+	/**
+	 * Sorted lines consumer
+	 */
+	private interface LineSink {
+		void accept(String line) throws IOException;
+	}
+
+
+	/**
+	 * Next line of one sorted run
+	 */
+	private static class Head implements Comparable<Head> {
+		private final BufferedReader reader;
+		private String line;
+
+		Head(final BufferedReader reader) throws IOException {
+			this.reader = reader;
+			this.line = reader.readLine();
+		}
+
+		boolean advance() throws IOException {
+			line = reader.readLine();
+			return line != null;
+		}
+
+		@Override
+		public int compareTo(final Head other) {
+			return line.compareTo(other.line);
+		}
+	}
+
+
+	/**
+	 * @param outputDir directory of the consolidated files
+	 * @param fanIn number of runs merged at a time, at least 2
+	 * @throws IOException if the temporary directory cannot be created
+	 */
+	public HLA_Services_ResultsMerger(final File outputDir, final int fanIn) throws IOException {
+		this(outputDir, fanIn, DEFAULT_RUN_RECORDS);
+	}
+
+
+	/**
+	 * @param outputDir directory of the consolidated files
+	 * @param fanIn number of runs merged at a time, at least 2
+	 * @param runRecords number of records sorted in memory
+	 * @throws IOException if the temporary directory cannot be created
+	 */
+	HLA_Services_ResultsMerger(final File outputDir, final int fanIn, final int runRecords) throws IOException {
+		this.outputDir = outputDir;
+		this.fanIn = Math.max(2, fanIn);
+		this.runRecords = Math.max(1, runRecords);
+		if (!outputDir.isDirectory() && !outputDir.mkdirs())
+			throw new IOException("Cannot create " + outputDir.getAbsolutePath());
+		this.tempDir = Files.createTempDirectory(outputDir.toPath(), "HLA_Services_merge_").toFile();
+	}
+
+
+	/**
+	 * Read the result files of a result directory
+	 * @param resultDir result directory of a runner node
+	 * @throws IOException if the directory cannot be read
+	 */
+	public void addResultDir(final File resultDir) throws IOException {
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(resultDir.toPath(), HLA_Services_ResultReport.CERTIFIED_PREFIX + "*")) {
+			for (Path path : files) {
+				File certified = path.toFile();
+				// Consolidated files of a previous merge
+				if (!certified.isFile() || certified.getName().startsWith(HLA_Services_ResultReport.CERTIFIED_PREFIX + MERGED_TAG))
+					continue;
+				// Non certified file of the same run has the same date suffix
+				String suffix = certified.getName().substring(HLA_Services_ResultReport.CERTIFIED_PREFIX.length());
+				File nonCertified = new File(resultDir, HLA_Services_ResultReport.NON_CERTIFIED_PREFIX + suffix);
+				addRun(HLA_Services_ResultReport.parse(certified), nonCertified.isFile() ? HLA_Services_ResultReport.parse(nonCertified) : null);
+			}
+		}
+	}
+
+
+	private void addRun(final HLA_Services_ResultReport certified, final HLA_Services_ResultReport nonCertified) throws IOException {
+
+		if (certified.getSutName() == null)
+			return;
+		String sut = certified.getSutName().replace(SEPARATOR, " ");
+		runsPerSut.merge(sut, 1, Integer::sum);
+		reportCount++;
+
+		for (String service : certified.getServices())
+			addRecord(sut + SEPARATOR + service + SEPARATOR + CERTIFIED);
+		if (nonCertified != null) {
+			for (String service : nonCertified.getServices())
+				addRecord(sut + SEPARATOR + service + SEPARATOR + NOT_CERTIFIED);
+		}
+	}
+
+
+	private void addRecord(final String record) throws IOException {
+		buffer.add(record);
+		if (buffer.size() >= runRecords)
+			spill();
+	}
+
+
+	// Write the buffer as a sorted run
+	private void spill() throws IOException {
+		if (buffer.isEmpty())
+			return;
+		Collections.sort(buffer);
+		File run = newRunFile();
+		try (BufferedWriter writer = Files.newBufferedWriter(run.toPath(), StandardCharsets.UTF_8)) {
+			for (String record : buffer) {
+				writer.write(record);
+				writer.newLine();
+			}
+		}
+		runs.add(run);
+		buffer.clear();
+	}
+
+
+	private File newRunFile() throws IOException {
+		return File.createTempFile("run_", ".txt", tempDir);
+	}
+
+
+	/**
+	 * Merge the records read and write the consolidated files
+	 * @return the written files
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public List<File> merge() throws IOException {
+
+		spill();
+		date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy_MM_dd_HH'h'mm'm'ss's'"));
+		mergePasses = 0;
+		try {
+			// Intermediate passes, fanIn runs at a time
+			while (runs.size() > fanIn) {
+				mergePasses++;
+				List<File> nextRuns = new ArrayList<File>();
+				for (int i = 0; i < runs.size(); i += fanIn) {
+					List<File> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+					if (group.size() == 1) {
+						nextRuns.add(group.get(0));
+						continue;
+					}
+					File merged = newRunFile();
+					try (BufferedWriter writer = Files.newBufferedWriter(merged.toPath(), StandardCharsets.UTF_8)) {
+						mergeRuns(group, line -> {
+							writer.write(line);
+							writer.newLine();
+						});
+					}
+					for (File run : group)
+						Files.delete(run.toPath());
+					nextRuns.add(merged);
+				}
+				runs = nextRuns;
+			}
+
+			// Last pass, straight to the consolidated files and the summary
+			File summaryFile = new File(outputDir, SUMMARY_PREFIX + FCTT_Environment.getDateForFileName() + FCTT_Constant.REPORT_FILE_NAME_EX);
+			summary = Files.newBufferedWriter(summaryFile.toPath(), StandardCharsets.UTF_8);
+			writtenFiles.add(summaryFile);
+			summary.write("###########################################################\r\n");
+			summary.write("Date : " + date + "\r\n");
+			summary.write("###########################################################\r\n");
+			summary.write("\r\n");
+			summary.write(String.format(SUMMARY_FORMATTER,
+					TextInternationalization.getString("resultsFile.headerColumns.sut"),
+					TextInternationalization.getString("resultsFile.headerColumns.services"),
+					TextInternationalization.getString("resultsFile.headerColumns.certifiedRuns"),
+					TextInternationalization.getString("resultsFile.headerColumns.runs")));
+			SutAggregator aggregator = new SutAggregator();
+			mergeRuns(runs, aggregator::accept);
+			aggregator.flush();
+		}
+		finally {
+			close();
+		}
+		return writtenFiles;
+	}
+
+
+	/**
+	 * Delete the temporary files, records not merged yet are lost
+	 * @throws IOException if a temporary file cannot be deleted
+	 */
+	@Override
+	public void close() throws IOException {
+		if (summary != null) {
+			summary.close();
+			summary = null;
+		}
+		buffer.clear();
+		for (File run : runs)
+			Files.deleteIfExists(run.toPath());
+		runs.clear();
+		Files.deleteIfExists(tempDir.toPath());
+	}
+
+
+	/**
+	 * @return number of result files pairs read
+	 */
+	public int getReportCount() {
+		return reportCount;
+	}
+
+
+	/**
+	 * @return number of intermediate merge passes of the last merge()
+	 */
+	int getMergePasses() {
+		return mergePasses;
+	}
+
+
+	private static void mergeRuns(final List<File> inputs, final LineSink sink) throws IOException {
+
+		List<BufferedReader> readers = new ArrayList<BufferedReader>();
+		try {
+			PriorityQueue<Head> heads = new PriorityQueue<Head>();
+			for (File input : inputs) {
+				BufferedReader reader = Files.newBufferedReader(input.toPath(), StandardCharsets.UTF_8);
+				readers.add(reader);
+				Head head = new Head(reader);
+				if (head.line != null)
+					heads.add(head);
+			}
+			while (!heads.isEmpty()) {
+				Head head = heads.poll();
+				sink.accept(head.line);
+				if (head.advance())
+					heads.add(head);
+			}
+		}
+		finally {
+			for (BufferedReader reader : readers)
+				reader.close();
+		}
+	}
+
+
+	/**
+	 * Groups the sorted records by SUT and service, writes the files of a SUT when the next one starts
+	 */
+	private class SutAggregator {
+		private String sut;
+		private String service;
+		private int certifiedRuns;
+		// Services of the current SUT and number of runs certifying them
+		private Map<String, Integer> services = new TreeMap<String, Integer>();
+
+		void accept(final String record) throws IOException {
+			String[] fields = record.split(SEPARATOR, -1);
+			if (fields.length != 3)
+				return;
+			if (!fields[0].equals(sut)) {
+				flush();
+				sut = fields[0];
+			}
+			if (!fields[1].equals(service)) {
+				endService();
+				service = fields[1];
+			}
+			if (fields[2].equals(CERTIFIED))
+				certifiedRuns++;
+		}
+
+		private void endService() {
+			if (service != null)
+				services.put(service, certifiedRuns);
+			service = null;
+			certifiedRuns = 0;
+		}
+
+		void flush() throws IOException {
+			endService();
+			if (sut != null)
+				writeSutReports(sut, services, runsPerSut.get(sut));
+			services.clear();
+			sut = null;
+		}
+	}
+
+
+	private void writeSutReports(final String sutName, final Map<String, Integer> services, final int runCount) throws IOException {
+
+		int lMaxLengthService = 1;
+		for (String service : services.keySet())
+			lMaxLengthService = Math.max(lMaxLengthService, service.length());
+		String formatter = "%-"+lMaxLengthService+"s %-5s %-45s%n";
+
+		// SUT names differing only by characters not allowed in file names get a number
+		String baseName = sutName.replaceAll("[^A-Za-z0-9_.-]", "_");
+		String fileName = baseName;
+		for (int n = 2; !fileNames.add(fileName); n++)
+			fileName = baseName + "_" + n;
+		String fileSuffix = fileName + "_" + FCTT_Environment.getDateForFileName() + FCTT_Constant.REPORT_FILE_NAME_EX;
+		File certifiedFile = new File(outputDir, HLA_Services_ResultReport.CERTIFIED_PREFIX + MERGED_TAG + fileSuffix);
+		File nonCertifiedFile = new File(outputDir, HLA_Services_ResultReport.NON_CERTIFIED_PREFIX + MERGED_TAG + fileSuffix);
+
+		try (FileWriter certifiedServicesResult = new FileWriter(certifiedFile);
+			 FileWriter nonCertifiedServicesResult = new FileWriter(nonCertifiedFile)) {
+			certifiedServicesResult.write(HLA_Services_ResultReport.writeHeader(sutName, date, eBuildResults.ServicesCertificated));
+			certifiedServicesResult.write(String.format(formatter, "", TextInternationalization.getString("resultsFile.headerColumns.services"), ""));
+			nonCertifiedServicesResult.write(HLA_Services_ResultReport.writeHeader(sutName, date, eBuildResults.ServicesNotCertificated));
+			nonCertifiedServicesResult.write(String.format(formatter, "", TextInternationalization.getString("resultsFile.headerColumns.services"), ""));
+			for (Map.Entry<String, Integer> service : services.entrySet()) {
+				if (service.getValue() > 0)
+					certifiedServicesResult.write(String.format(formatter, service.getKey(), "", ""));
+				else
+					nonCertifiedServicesResult.write(String.format(formatter, service.getKey(), "", ""));
+				summary.write(String.format(SUMMARY_FORMATTER, sutName, service.getKey(), service.getValue(), runCount));
+			}
+		}
+		writtenFiles.add(certifiedFile);
+		writtenFiles.add(nonCertifiedFile);
+	}
+
+
+	public static void main(final String[] args) throws IOException {
+
+		List<String> resultDirs = new ArrayList<String>();
+		int fanIn = DEFAULT_FAN_IN;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("--fanIn") && (i + 1 < args.length))
+				fanIn = Integer.parseInt(args[++i]);
+			else
+				resultDirs.add(args[i]);
+		}
+		if ((args.length < 1) || resultDirs.isEmpty()) {
+			System.err.println("usage: outputDir resultDir... [--fanIn n]");
+			System.exit(1);
+		}
+
+		try (HLA_Services_ResultsMerger merger = new HLA_Services_ResultsMerger(new File(args[0]), fanIn)) {
+			for (String resultDir : resultDirs)
+				merger.addResultDir(new File(resultDir));
+			List<File> files = merger.merge();
+			System.out.println(merger.getReportCount() + " run(s) merged");
+			for (File file : files)
+				System.out.println(" - " + file.getAbsolutePath());
+		}
+	}
+}
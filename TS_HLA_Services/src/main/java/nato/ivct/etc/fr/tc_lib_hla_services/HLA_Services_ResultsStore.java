@@ -0,0 +1,406 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Embedded, file based store of the services certification history.
+ * <p>
+ * Every run is appended to index files partitioned by month of the run date,
+ * so that a query only reads the months of the SUT or of the service it is
+ * about, whatever the length of the history and the order of the imports:
+ * <ul>
+ * <li>sources/&lt;month&gt;.idx : source of every run, imported or not</li>
+ * <li>sut/&lt;SUT&gt;/&lt;month&gt;.idx : date, service, C (certified) or N (non certified)</li>
+ * <li>service/&lt;service&gt;/&lt;month&gt;.idx : date, SUT, C or N</li>
+ * </ul>
+ * Dates use the result files format (yyyy_MM_dd_HH'h'mm'm'ss's'), which sorts
+ * as text; the month is its first 7 characters. Writers of all the processes
+ * sharing the store are serialized by a lock on the store directory.
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ResultsStore {
+
+	// Store directory created in the result directory
+	public static final String STORE_DIR_NAME = "HLA_Services_results_store";
+
+	private static final String LOCK_FILE = "store.lock";
+	private static final String SOURCES_DIR = "sources";
+	private static final String SUT_DIR = "sut";
+	private static final String SERVICE_DIR = "service";
+	// Length of yyyy_MM
+	private static final int MONTH_LENGTH = 7;
+	private static final String INDEX_EX = ".idx";
+	private static final String SEPARATOR = "\t";
+	private static final String CERTIFIED = "C";
+	private static final String NOT_CERTIFIED = "N";
+
+	// A FileLock is held by the JVM: threads of one JVM also share a monitor per store
+	private static final Map<String, Object> storeMonitors = new ConcurrentHashMap<String, Object>();
+
+	private File storeDir;
+	private File sourcesDir;
+	private File sutDir;
+	private File serviceDir;
+
+
+	/**
+	 * One service state of one run
+	 */
+	public static class Record {
+		private final String date;
+		private final String sutName;
+		private final String service;
+		private final boolean certified;
+
+		public Record(final String date, final String sutName, final String service, final boolean certified) {
+			this.date = date;
+			this.sutName = sutName;
+			this.service = service;
+			this.certified = certified;
+		}
+
+		public String getDate() {
+			return this.date;
+		}
+
+		public String getSutName() {
+			return this.sutName;
+		}
+
+		public String getService() {
+			return this.service;
+		}
+
+		public boolean isCertified() {
+			return this.certified;
+		}
+	}
+
+
+	/**
+	 * @param resultDir result directory containing the store
+	 */
+	public HLA_Services_ResultsStore(final String resultDir) {
+		this(new File(resultDir, STORE_DIR_NAME));
+	}
+
+
+	/**
+	 * @param storeDir store directory
+	 */
+	public HLA_Services_ResultsStore(final File storeDir) {
+		this.storeDir = storeDir;
+		this.sourcesDir = new File(storeDir, SOURCES_DIR);
+		this.sutDir = new File(storeDir, SUT_DIR);
+		this.serviceDir = new File(storeDir, SERVICE_DIR);
+	}
+
+
+	/**
+	 * Add the results of a run
+	 * @param date run date
+	 * @param sutName system under test name
+	 * @param certifiedServices certified services
+	 * @param nonCertifiedServices non certified services
+	 * @param source origin of the results (result file name), key against duplicates
+	 * @return false if the results of this source were already added
+	 * @throws IOException if an index cannot be written
+	 */
+	public boolean addRun(final String date, final String sutName, final Collection<String> certifiedServices, final Collection<String> nonCertifiedServices, final String source) throws IOException {
+
+		synchronized (getMonitor()) {
+			createDirectories();
+			try (FileChannel lockChannel = FileChannel.open(new File(storeDir, LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				 FileLock lock = lockChannel.lock()) {
+
+				File sourcesIndex = new File(sourcesDir, month(date) + INDEX_EX);
+				if (source != null) {
+					if (sourcesIndex.isFile() && Files.readAllLines(sourcesIndex.toPath(), StandardCharsets.UTF_8).contains(source))
+						return false;
+				}
+
+				// SuT index
+				StringBuilder sutLines = new StringBuilder();
+				appendLines(sutLines, date, certifiedServices, CERTIFIED);
+				appendLines(sutLines, date, nonCertifiedServices, NOT_CERTIFIED);
+				append(partition(sutDir, sutName, date), sutLines.toString());
+
+				// Service indexes
+				for (String service : certifiedServices)
+					append(partition(serviceDir, service, date), date + SEPARATOR + sutName + SEPARATOR + CERTIFIED + "\n");
+				for (String service : nonCertifiedServices)
+					append(partition(serviceDir, service, date), date + SEPARATOR + sutName + SEPARATOR + NOT_CERTIFIED + "\n");
+
+				// Source index
+				if (source != null)
+					append(sourcesIndex, source + "\n");
+				return true;
+			}
+		}
+	}
+
+
+	/**
+	 * Add the results of existing result files
+	 * @param certifiedReport certified services result file
+	 * @param nonCertifiedReport non certified services result file, may be null
+	 * @return false if the results were already added, by a test execution or an import
+	 * @throws IOException if a file cannot be read or an index cannot be written
+	 */
+	public boolean importReports(final File certifiedReport, final File nonCertifiedReport) throws IOException {
+
+		HLA_Services_ResultReport certified = HLA_Services_ResultReport.parse(certifiedReport);
+		if ((certified.getSutName() == null) || (certified.getDate() == null))
+			throw new IOException("No SUT name or date in " + certifiedReport.getAbsolutePath());
+		List<String> nonCertifiedServices = new ArrayList<String>();
+		if ((nonCertifiedReport != null) && nonCertifiedReport.isFile())
+			nonCertifiedServices = HLA_Services_ResultReport.parse(nonCertifiedReport).getServices();
+		// Same records as validateServices()
+		nonCertifiedServices.removeAll(certified.getServices());
+
+		return addRun(certified.getDate(), certified.getSutName(), certified.getServices(), nonCertifiedServices, certifiedReport.getName());
+	}
+
+
+	/**
+	 * @param service HLA service name
+	 * @return the SUTs which have been certified for this service
+	 * @throws IOException if the index cannot be read
+	 */
+	public Set<String> getSutsUsingService(final String service) throws IOException {
+
+		Set<String> suts = new TreeSet<String>();
+		for (Record record : getServiceHistory(service, null, null)) {
+			if (record.isCertified())
+				suts.add(record.getSutName());
+		}
+		return suts;
+	}
+
+
+	/**
+	 * @param sutName system under test name
+	 * @param certified true for the certified services, false for the non certified ones
+	 * @return the services found at least once with this state for the SUT
+	 * @throws IOException if the index cannot be read
+	 */
+	public Set<String> getServicesOfSut(final String sutName, final boolean certified) throws IOException {
+
+		Set<String> services = new TreeSet<String>();
+		for (Record record : getSutHistory(sutName, null, null)) {
+			if (record.isCertified() == certified)
+				services.add(record.getService());
+		}
+		return services;
+	}
+
+
+	/**
+	 * @param service HLA service name
+	 * @param fromDate first date included, null for no lower bound
+	 * @param toDate last date included, null for no upper bound
+	 * @return the records of the service
+	 * @throws IOException if the index cannot be read
+	 */
+	public List<Record> getServiceHistory(final String service, final String fromDate, final String toDate) throws IOException {
+
+		List<Record> records = new ArrayList<Record>();
+		for (String[] fields : readIndex(new File(serviceDir, encode(service)), fromDate, toDate))
+			records.add(new Record(fields[0], fields[1], service, CERTIFIED.equals(fields[2])));
+		return records;
+	}
+
+
+	/**
+	 * @param sutName system under test name
+	 * @param fromDate first date included, null for no lower bound
+	 * @param toDate last date included, null for no upper bound
+	 * @return the records of the SUT
+	 * @throws IOException if the index cannot be read
+	 */
+	public List<Record> getSutHistory(final String sutName, final String fromDate, final String toDate) throws IOException {
+
+		List<Record> records = new ArrayList<Record>();
+		for (String[] fields : readIndex(new File(sutDir, encode(sutName)), fromDate, toDate))
+			records.add(new Record(fields[0], sutName, fields[1], CERTIFIED.equals(fields[2])));
+		return records;
+	}
+
+
+	/**
+	 * @return the SUTs known by the store
+	 */
+	public Set<String> getSuts() {
+		return listNames(sutDir);
+	}
+
+
+	/**
+	 * @return the services known by the store
+	 */
+	public Set<String> getServices() {
+		return listNames(serviceDir);
+	}
+
+
+	/**
+	 * @return the store directory
+	 */
+	public File getStoreDir() {
+		return this.storeDir;
+	}
+
+
+	private Object getMonitor() {
+		String key;
+		try {
+			key = storeDir.getCanonicalPath();
+		}
+		catch (IOException e) {
+			key = storeDir.getAbsolutePath();
+		}
+		return storeMonitors.computeIfAbsent(key, k -> new Object());
+	}
+
+
+	private void createDirectories() throws IOException {
+		if (!sourcesDir.isDirectory() && !sourcesDir.mkdirs())
+			throw new IOException("Cannot create " + sourcesDir.getAbsolutePath());
+		if (!sutDir.isDirectory() && !sutDir.mkdirs())
+			throw new IOException("Cannot create " + sutDir.getAbsolutePath());
+		if (!serviceDir.isDirectory() && !serviceDir.mkdirs())
+			throw new IOException("Cannot create " + serviceDir.getAbsolutePath());
+	}
+
+
+	private static String month(final String date) {
+		return (date.length() > MONTH_LENGTH) ? date.substring(0, MONTH_LENGTH) : date;
+	}
+
+
+	// Index file of a SuT or a service for the month of the date
+	private static File partition(final File parentDir, final String name, final String date) throws IOException {
+		File dir = new File(parentDir, encode(name));
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Cannot create " + dir.getAbsolutePath());
+		return new File(dir, encode(month(date)) + INDEX_EX);
+	}
+
+
+	private static void appendLines(final StringBuilder lines, final String date, final Collection<String> services, final String state) {
+		for (String service : services)
+			lines.append(date).append(SEPARATOR).append(service).append(SEPARATOR).append(state).append("\n");
+	}
+
+
+	private static void append(final File indexFile, final String lines) throws IOException {
+		if (lines.isEmpty())
+			return;
+		try (Writer writer = Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			writer.write(lines);
+		}
+	}
+
+
+	private static List<String[]> readIndex(final File indexDir, final String fromDate, final String toDate) throws IOException {
+
+		List<String[]> lines = new ArrayList<String[]>();
+		// Months of the range only, in date order
+		for (String month : listNames(indexDir)) {
+			// All the dates of a month are between month and month + \uffff
+			if ((fromDate != null) && ((month + "\uffff").compareTo(fromDate) < 0))
+				continue;
+			if ((toDate != null) && (month.compareTo(toDate) > 0))
+				continue;
+
+			try (BufferedReader reader = Files.newBufferedReader(new File(indexDir, encode(month) + INDEX_EX).toPath(), StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] fields = line.split(SEPARATOR, -1);
+					if (fields.length < 3)
+						continue;
+					if ((fromDate != null) && (fields[0].compareTo(fromDate) < 0))
+						continue;
+					if ((toDate != null) && (fields[0].compareTo(toDate) > 0))
+						continue;
+					lines.add(fields);
+				}
+			}
+		}
+		return lines;
+	}
+
+
+	// Names of the index files, or of the index directories
+	private static Set<String> listNames(final File dir) {
+
+		Set<String> names = new TreeSet<String>();
+		File[] files = dir.listFiles();
+		if (files == null)
+			return names;
+		for (File file : files) {
+			String fileName = file.getName();
+			if (file.isDirectory())
+				names.add(decode(fileName));
+			else if (fileName.endsWith(INDEX_EX))
+				names.add(decode(fileName.substring(0, fileName.length() - INDEX_EX.length())));
+		}
+		return names;
+	}
+
+
+	// File name safe encoding of SuT and service names
+	private static String encode(final String name) {
+		try {
+			return URLEncoder.encode(name, "UTF-8").replace("*", "%2A");
+		}
+		catch (UnsupportedEncodingException e) {
+			return name;
+		}
+	}
+
+
+	private static String decode(final String fileName) {
+		try {
+			return URLDecoder.decode(fileName, "UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			return fileName;
+		}
+	}
+}
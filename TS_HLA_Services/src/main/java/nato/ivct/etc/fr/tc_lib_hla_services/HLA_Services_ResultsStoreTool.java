@@ -0,0 +1,98 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Command line access to the results store:
+ * <ul>
+ * <li>import &lt;resultDir&gt; : import the existing result files of resultDir, merged files excepted</li>
+ * <li>suts &lt;resultDir&gt; &lt;service&gt; : SUTs certified for a service</li>
+ * <li>history &lt;resultDir&gt; &lt;sutName&gt; [fromDate [toDate]] : service states of a SUT</li>
+ * </ul>
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ResultsStoreTool {
+
+	private static final String USAGE = "usage: import <resultDir> | suts <resultDir> <service> | history <resultDir> <sutName> [fromDate [toDate]]";
+
+
+	public static void main(final String[] args) throws IOException {
+
+		if (args.length < 2) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		HLA_Services_ResultsStore store = new HLA_Services_ResultsStore(args[1]);
+
+		if (args[0].equals("import")) {
+			importReports(store, new File(args[1]));
+		}
+		else if (args[0].equals("suts") && (args.length == 3)) {
+			for (String sut : store.getSutsUsingService(args[2]))
+				System.out.println(sut);
+		}
+		else if (args[0].equals("history") && (args.length >= 3)) {
+			String fromDate = (args.length > 3) ? args[3] : null;
+			String toDate = (args.length > 4) ? args[4] : null;
+			for (HLA_Services_ResultsStore.Record record : store.getSutHistory(args[2], fromDate, toDate))
+				System.out.println(record.getDate() + " " + record.getService() + " " + (record.isCertified() ? "certified" : "non certified"));
+		}
+		else {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+	}
+
+
+	private static void importReports(final HLA_Services_ResultsStore store, final File resultDir) {
+
+		File[] files = resultDir.listFiles();
+		if (files == null) {
+			System.err.println("Cannot list " + resultDir.getAbsolutePath());
+			return;
+		}
+		Arrays.sort(files);
+
+		int imported = 0;
+		int skipped = 0;
+		for (File file : files) {
+			if (!file.isFile() || !file.getName().startsWith(HLA_Services_ResultReport.CERTIFIED_PREFIX))
+				continue;
+			// Consolidated files of HLA_Services_ResultsMerger, not runs
+			if (file.getName().startsWith(HLA_Services_ResultReport.CERTIFIED_PREFIX + HLA_Services_ResultsMerger.MERGED_TAG))
+				continue;
+			// Non certified file of the same run has the same date suffix
+			String suffix = file.getName().substring(HLA_Services_ResultReport.CERTIFIED_PREFIX.length());
+			File nonCertified = new File(resultDir, HLA_Services_ResultReport.NON_CERTIFIED_PREFIX + suffix);
+			try {
+				if (store.importReports(file, nonCertified))
+					imported++;
+				else
+					skipped++;
+			}
+			catch (IOException e) {
+				System.err.println("Cannot import " + file.getName() + ": " + e.getMessage());
+			}
+		}
+		System.out.println(imported + " run(s) imported, " + skipped + " already in " + store.getStoreDir().getAbsolutePath());
+	}
+}
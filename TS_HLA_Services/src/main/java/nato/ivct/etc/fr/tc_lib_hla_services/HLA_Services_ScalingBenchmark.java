@@ -0,0 +1,318 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import nato.ivct.etc.fr.fctt_common.configuration.controller.validation.FCTTFilesCheck;
+import nato.ivct.etc.fr.fctt_common.resultServices.model.ResultServicesModel;
+import nato.ivct.etc.fr.fctt_common.utils.FCTT_Constant;
+import nato.ivct.etc.fr.fctt_common.utils.FCTT_Enum.eBuildResults;
+import nato.ivct.etc.fr.fctt_common.utils.FCTT_Environment;
+import nato.ivct.etc.fr.fctt_common.utils.StringWrapper;
+import nato.ivct.etc.fr.fctt_common.utils.TextInternationalization;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Offline scaling benchmark of the FOM/SOM loading and of the result files,
+ * on synthetic models of growing size (see {@link HLA_Services_ModelGenerator}).
+ * <p>
+ * The steps follow three axes, one size doubled at a time from the first
+ * step, the other sizes unchanged:
+ * <ul>
+ * <li>classes : the number of classes per module,</li>
+ * <li>modules : the number of modules, with the same total number of classes,</li>
+ * <li>services : the number of declared services, up to the number of HLA
+ * services.</li>
+ * </ul>
+ * Each step measures, as loadFomSomFiles() and validateServices() do them
+ * without RTI:
+ * <ul>
+ * <li>the FOM/SOM loading,</li>
+ * <li>the heap retained by the loaded data model,</li>
+ * <li>computeMaxServiceNameLength() and the writing of both result files.</li>
+ * </ul>
+ * The growth exponent of a measure is the slope of log(measure) against the
+ * log of the size of an axis it depends on: classes and modules for the
+ * loading and the heap, declared services for the result files. A slope
+ * above {@link #SUPER_LINEAR_SLOPE} is flagged and the exit code is 2. Short
+ * operations are repeated for at least {@link #MIN_TIMED_MS} ms per measure,
+ * so that timer resolution does not make the slopes noisy.
+ * <p>
+ * Arguments : workDir [modules classesPerModule declaredServices [steps]]
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ScalingBenchmark {
+
+	// Growth exponent above which a measure is flagged
+	public static final double SUPER_LINEAR_SLOPE = 1.2;
+
+	// Minimum duration of a timed measure, short operations being repeated
+	public static final long MIN_TIMED_MS = 50;
+	private static final int MAX_TIMED_COUNT = 1 << 20;
+
+	private static final int REPETITIONS = 3;
+	private static final String SUT_NAME = "Synthetic_SUT";
+	private static final String[] MEASURES = { "loadMs", "heapKB", "maxLengthMs", "writeMs" };
+	// Axes of the steps, and indexes in MEASURES of the measures depending on each
+	private static final String[] AXES = { "classes", "modules", "services" };
+	private static final int[][] AXIS_MEASURES = { { 0, 1 }, { 0, 1 }, { 2, 3 } };
+
+	private Logger logger;
+	private File workDir;
+
+
+	/**
+	 * Timed operation
+	 */
+	private interface Operation {
+		void run() throws IOException;
+	}
+
+
+	/**
+	 * @param logger reference to a logger, given to the FOM/SOM loader
+	 * @param workDir directory of the generated models and of the result files
+	 */
+	public HLA_Services_ScalingBenchmark(final Logger logger, final File workDir) {
+		this.logger = logger;
+		this.workDir = workDir;
+	}
+
+
+	/**
+	 * Measure one model size, best of REPETITIONS runs for the times
+	 * @param generator model of this size
+	 * @param directory directory of this size
+	 * @return measures, in MEASURES order
+	 * @throws IOException if a file cannot be written or read
+	 */
+	public double[] measure(final HLA_Services_ModelGenerator generator, final File directory) throws IOException {
+
+		List<String> fomFiles = generator.writeFomModules(directory);
+		List<String> somFiles = generator.writeSomModules(directory);
+		String date = FCTT_Environment.getDateForFileName();
+		File certifiedFile = new File(directory, HLA_Services_ResultReport.CERTIFIED_PREFIX + date + FCTT_Constant.REPORT_FILE_NAME_EX);
+		File nonCertifiedFile = new File(directory, HLA_Services_ResultReport.NON_CERTIFIED_PREFIX + date + FCTT_Constant.REPORT_FILE_NAME_EX);
+
+		List<String> declaredServices = generator.getDeclaredServices();
+		double[] measures = { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+		for (int run = 0; run < REPETITIONS; run++) {
+
+			// FOM/SOM loading
+			long heapBefore = usedHeap();
+			long start = System.nanoTime();
+			FCTTFilesCheck filesLoader = new FCTTFilesCheck(logger, directory.getAbsolutePath(), SUT_NAME);
+			if (!filesLoader.checkFiles(fomFiles, somFiles, null))
+				throw new IOException("Synthetic FOM/SOM rejected, see " + directory.getAbsolutePath());
+			ResultServicesModel resultModel = new ResultServicesModel();
+			resultModel.setDataModel(filesLoader.getServiceHLA());
+			measures[0] = Math.min(measures[0], (System.nanoTime() - start) / 1e6);
+			measures[1] = Math.min(measures[1], (usedHeap() - heapBefore) / 1024.0);
+
+			// Half of the declared services reported
+			for (int i = 0; i < declaredServices.size(); i += 2)
+				resultModel.updateState(declaredServices.get(i));
+
+			int lMaxLengthService = resultModel.computeMaxServiceNameLength();
+			measures[2] = Math.min(measures[2], averageMs(() -> resultModel.computeMaxServiceNameLength()));
+			measures[3] = Math.min(measures[3], averageMs(() -> writeResults(resultModel, lMaxLengthService, certifiedFile, nonCertifiedFile)));
+
+			// Keep the model reachable up to the heap measure
+			resultModel.getValidated();
+		}
+		return measures;
+	}
+
+
+	// Same output as validateServices()
+	private void writeResults(final ResultServicesModel resultModel, final int lMaxLengthService, final File certifiedFile, final File nonCertifiedFile) throws IOException {
+
+		StringWrapper fileWriter = new StringWrapper("");
+		String formatter = "%-"+Math.max(1, lMaxLengthService)+"s %-5s %-45s%n";
+		String date = FCTT_Environment.getDateForFileName();
+		try (FileWriter certifiedServicesResult = new FileWriter(certifiedFile);
+			 FileWriter nonCertifiedServicesResult = new FileWriter(nonCertifiedFile)) {
+			certifiedServicesResult.write(HLA_Services_ResultReport.writeHeader(SUT_NAME, date, eBuildResults.ServicesCertificated));
+			certifiedServicesResult.write(String.format(formatter, "", TextInternationalization.getString("resultsFile.headerColumns.services"), ""));
+			certifiedServicesResult.write(resultModel.writeResults(eBuildResults.ServicesCertificated, fileWriter, formatter).getString());
+			nonCertifiedServicesResult.write(HLA_Services_ResultReport.writeHeader(SUT_NAME, date, eBuildResults.ServicesNotCertificated));
+			nonCertifiedServicesResult.write(String.format(formatter, "", TextInternationalization.getString("resultsFile.headerColumns.services"), ""));
+			nonCertifiedServicesResult.write(resultModel.writeResults(eBuildResults.ServicesNotCertificated, fileWriter, formatter).getString());
+		}
+	}
+
+
+	// Mean time of the operation, repeated for at least MIN_TIMED_MS or MAX_TIMED_COUNT times
+	private static double averageMs(final Operation operation) throws IOException {
+
+		for (int count = 1; ; count *= 2) {
+			long start = System.nanoTime();
+			for (int i = 0; i < count; i++)
+				operation.run();
+			long elapsed = System.nanoTime() - start;
+			if ((elapsed >= MIN_TIMED_MS * 1000000) || (count >= MAX_TIMED_COUNT))
+				return elapsed / 1e6 / count;
+		}
+	}
+
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+
+	/**
+	 * Least squares slope of log(y) against log(x), points with y &lt;= 0 ignored
+	 * @param x sizes
+	 * @param y measures
+	 * @return the growth exponent, NaN if less than two points
+	 */
+	public static double logLogSlope(final double[] x, final double[] y) {
+
+		double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+		int n = 0;
+		for (int i = 0; i < x.length; i++) {
+			if ((x[i] <= 0) || (y[i] <= 0))
+				continue;
+			double lx = Math.log(x[i]);
+			double ly = Math.log(y[i]);
+			sumX += lx;
+			sumY += ly;
+			sumXX += lx * lx;
+			sumXY += lx * ly;
+			n++;
+		}
+		double denominator = n * sumXX - sumX * sumX;
+		if ((n < 2) || (denominator == 0))
+			return Double.NaN;
+		return (n * sumXY - sumX * sumY) / denominator;
+	}
+
+
+	/**
+	 * Run all the steps, write the CSV file and print the growth exponents
+	 * @param modules number of FOM modules of the first step
+	 * @param classesPerModule object and interaction classes per module of the first step
+	 * @param declaredServices declared services of the first step
+	 * @param steps number of sizes per axis, less on the services axis once all the HLA services are declared
+	 * @return true if a measure grows faster than linearly
+	 * @throws IOException if a file cannot be written or read
+	 */
+	public boolean run(final int modules, final int classesPerModule, final int declaredServices, final int steps) throws IOException {
+
+		// Warm up the loader, not measured
+		measure(new HLA_Services_ModelGenerator(modules, classesPerModule, declaredServices), new File(workDir, "warmup"));
+
+		boolean superLinear = false;
+		File csvFile = new File(workDir, "HLA_Services_scaling_" + FCTT_Environment.getDateForFileName() + ".csv");
+		try (FileWriter csv = new FileWriter(csvFile)) {
+			csv.write("axis,modules,classes,declaredServices," + String.join(",", MEASURES) + "\n");
+			for (int axis = 0; axis < AXES.length; axis++) {
+				List<HLA_Services_ModelGenerator> generators = getSteps(axis, modules, classesPerModule, declaredServices, steps);
+				double[] sizes = new double[generators.size()];
+				double[][] results = new double[MEASURES.length][generators.size()];
+				for (int step = 0; step < generators.size(); step++) {
+					HLA_Services_ModelGenerator generator = generators.get(step);
+					double[] measures = measure(generator, new File(workDir, AXES[axis] + "_" + step));
+					sizes[step] = getSize(axis, generator);
+
+					StringBuilder line = new StringBuilder();
+					line.append(AXES[axis]).append(',').append(generator.getModuleCount()).append(',').append(generator.getClassCount()).append(',').append(generator.getDeclaredServices().size());
+					for (int m = 0; m < MEASURES.length; m++) {
+						results[m][step] = measures[m];
+						line.append(',').append(String.format(Locale.ROOT, "%.3f", measures[m]));
+					}
+					csv.write(line + "\n");
+					System.out.println(line);
+				}
+
+				for (int m : AXIS_MEASURES[axis]) {
+					double slope = logLogSlope(sizes, results[m]);
+					boolean flagged = !Double.isNaN(slope) && (slope > SUPER_LINEAR_SLOPE);
+					superLinear |= flagged;
+					System.out.println(String.format(Locale.ROOT, "%-12s slope %6.2f against %-9s%s", MEASURES[m], slope, AXES[axis], flagged ? "   SUPER-LINEAR" : ""));
+				}
+			}
+		}
+		System.out.println(csvFile.getAbsolutePath());
+		return superLinear;
+	}
+
+
+	// Models of the steps of an axis, every size different
+	private static List<HLA_Services_ModelGenerator> getSteps(final int axis, final int modules, final int classesPerModule, final int declaredServices, final int steps) {
+
+		List<HLA_Services_ModelGenerator> generators = new ArrayList<HLA_Services_ModelGenerator>();
+		int maxServices = HLA_Services_ServiceNames.getServiceNames().size();
+		for (int step = 0; step < steps; step++) {
+			int factor = 1 << step;
+			if (axis == 0) {
+				generators.add(new HLA_Services_ModelGenerator(modules, classesPerModule * factor, declaredServices));
+			}
+			else if (axis == 1) {
+				// Same classes in more modules, while a module holds at least one class
+				if (classesPerModule * modules / (modules * factor) < 1)
+					break;
+				generators.add(new HLA_Services_ModelGenerator(modules * factor, classesPerModule * modules / (modules * factor), declaredServices));
+			}
+			else {
+				// All the HLA services declared : no larger size
+				if ((step > 0) && ((declaredServices <= 0) || (declaredServices * (factor / 2) >= maxServices)))
+					break;
+				generators.add(new HLA_Services_ModelGenerator(modules, classesPerModule, declaredServices * factor));
+			}
+		}
+		return generators;
+	}
+
+
+	private static double getSize(final int axis, final HLA_Services_ModelGenerator generator) {
+		if (axis == 0)
+			return generator.getClassCount();
+		if (axis == 1)
+			return generator.getModuleCount();
+		return generator.getDeclaredServices().size();
+	}
+
+
+	public static void main(final String[] args) throws IOException {
+
+		if (args.length < 1) {
+			System.err.println("usage: workDir [modules classesPerModule declaredServices [steps]]");
+			System.exit(1);
+		}
+		int modules = (args.length > 3) ? Integer.parseInt(args[1]) : 4;
+		int classesPerModule = (args.length > 3) ? Integer.parseInt(args[2]) : 25;
+		int declaredServices = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+		int steps = (args.length > 4) ? Integer.parseInt(args[4]) : 5;
+
+		HLA_Services_ScalingBenchmark benchmark = new HLA_Services_ScalingBenchmark(LoggerFactory.getLogger(HLA_Services_ScalingBenchmark.class), new File(args[0]));
+		System.exit(benchmark.run(modules, classesPerModule, declaredServices, steps) ? 2 : 0);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Names of the HLA services, as declared by the service utilization section
+ * of a SOM and as written in the services result files
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ServiceNames {
+
+	// Service utilization elements, in IEEE1516-DIF-2010 schema order
+	private static final List<String> SERVICES = Collections.unmodifiableList(Arrays.asList(
+			"connect", "disconnect", "connectionLost", "createFederationExecution", "destroyFederationExecution",
+			"listFederationExecutions", "reportFederationExecutions", "joinFederationExecution", "resignFederationExecution",
+			"registerFederationSynchronizationPoint", "confirmSynchronizationPointRegistration", "announceSynchronizationPoint",
+			"synchronizationPointAchieved", "federationSynchronized",
+			"requestFederationSave", "initiateFederateSave", "federateSaveBegun", "federateSaveComplete", "federationSaved",
+			"abortFederationSave", "queryFederationSaveStatus", "federationSaveStatusResponse",
+			"requestFederationRestore", "confirmFederationRestorationRequest", "federationRestoreBegun", "initiateFederateRestore",
+			"federateRestoreComplete", "federationRestored", "abortFederationRestore", "queryFederationRestoreStatus",
+			"federationRestoreStatusResponse",
+			"publishObjectClassAttributes", "unpublishObjectClassAttributes", "publishInteractionClass", "unpublishInteractionClass",
+			"subscribeObjectClassAttributes", "unsubscribeObjectClassAttributes", "subscribeInteractionClass", "unsubscribeInteractionClass",
+			"startRegistrationForObjectClass", "stopRegistrationForObjectClass", "turnInteractionsOn", "turnInteractionsOff",
+			"reserveObjectInstanceName", "objectInstanceNameReserved", "releaseObjectInstanceName",
+			"reserveMultipleObjectInstanceName", "multipleObjectInstanceNameReserved", "releaseMultipleObjectInstanceName",
+			"registerObjectInstance", "discoverObjectInstance", "updateAttributeValues", "reflectAttributeValues",
+			"sendInteraction", "receiveInteraction", "deleteObjectInstance", "removeObjectInstance", "localDeleteObjectInstance",
+			"attributesInScope", "attributesOutOfScope", "requestAttributeValueUpdate", "provideAttributeValueUpdate",
+			"turnUpdatesOnForObjectInstance", "turnUpdatesOffForObjectInstance",
+			"requestAttributeTransportationTypeChange", "confirmAttributeTransportationTypeChange",
+			"queryAttributeTransportationType", "reportAttributeTransportationType",
+			"requestInteractionTransportationTypeChange", "confirmInteractionTransportationTypeChange",
+			"queryInteractionTransportationType", "reportInteractionTransportationType",
+			"unconditionalAttributeOwnershipDivestiture", "negotiatedAttributeOwnershipDivestiture",
+			"requestAttributeOwnershipAssumption", "requestDivestitureConfirmation", "confirmDivestiture",
+			"attributeOwnershipAcquisitionNotification", "attributeOwnershipAcquisition", "attributeOwnershipAcquisitionIfAvailable",
+			"attributeOwnershipUnavailable", "requestAttributeOwnershipRelease", "attributeOwnershipReleaseDenied",
+			"attributeOwnershipDivestitureIfWanted", "cancelNegotiatedAttributeOwnershipDivestiture",
+			"cancelAttributeOwnershipAcquisition", "confirmAttributeOwnershipAcquisitionCancellation",
+			"queryAttributeOwnership", "informAttributeOwnership", "attributeIsNotOwned", "attributeIsOwnedByRTI",
+			"isAttributeOwnedByFederate",
+			"enableTimeRegulation", "timeRegulationEnabled", "disableTimeRegulation", "enableTimeConstrained",
+			"timeConstrainedEnabled", "disableTimeConstrained", "timeAdvanceRequest", "timeAdvanceRequestAvailable",
+			"nextMessageRequest", "nextMessageRequestAvailable", "flushQueueRequest", "timeAdvanceGrant",
+			"enableAsynchronousDelivery", "disableAsynchronousDelivery", "queryGALT", "queryLogicalTime", "queryLITS",
+			"modifyLookahead", "queryLookahead", "retract", "requestRetraction",
+			"changeAttributeOrderType", "changeInteractionOrderType",
+			"createRegion", "commitRegionModifications", "deleteRegion", "registerObjectInstanceWithRegions",
+			"associateRegionsForUpdates", "unassociateRegionsForUpdates",
+			"subscribeObjectClassAttributesWithRegions", "unsubscribeObjectClassAttributesWithRegions",
+			"subscribeInteractionClassWithRegions", "unsubscribeInteractionClassWithRegions",
+			"sendInteractionWithRegions", "requestAttributeValueUpdateWithRegions",
+			"getAutomaticResignDirective", "setAutomaticResignDirective", "getFederateHandle", "getFederateName",
+			"getObjectClassHandle", "getObjectClassName", "getKnownObjectClassHandle", "getObjectInstanceHandle",
+			"getObjectInstanceName", "getAttributeHandle", "getAttributeName", "getUpdateRateValue",
+			"getUpdateRateValueForAttribute", "getInteractionClassHandle", "getInteractionClassName",
+			"getParameterHandle", "getParameterName", "getOrderType", "getOrderName",
+			"getTransportationTypeHandle", "getTransportationTypeName", "getAvailableDimensionsForClassAttribute",
+			"getAvailableDimensionsForInteractionClass", "getDimensionHandle", "getDimensionName",
+			"getDimensionUpperBound", "getDimensionHandleSet", "getRangeBounds", "setRangeBounds",
+			"normalizeFederateHandle", "normalizeServiceGroup",
+			"enableObjectClassRelevanceAdvisorySwitch", "disableObjectClassRelevanceAdvisorySwitch",
+			"enableAttributeRelevanceAdvisorySwitch", "disableAttributeRelevanceAdvisorySwitch",
+			"enableAttributeScopeAdvisorySwitch", "disableAttributeScopeAdvisorySwitch",
+			"enableInteractionRelevanceAdvisorySwitch", "disableInteractionRelevanceAdvisorySwitch",
+			"evokeCallback", "evokeMultipleCallbacks", "enableCallbacks", "disableCallbacks"));
+
+	private static final Set<String> SERVICE_SET = Collections.unmodifiableSet(new HashSet<String>(SERVICES));
+
+
+	private HLA_Services_ServiceNames() {
+	}
+
+
+	/**
+	 * @return the HLA services, in IEEE1516-DIF-2010 schema order
+	 */
+	public static List<String> getServiceNames() {
+		return SERVICES;
+	}
+
+
+	/**
+	 * @param name a name
+	 * @return true if the name is the name of an HLA service
+	 */
+	public static boolean isService(final String name) {
+		return SERVICE_SET.contains(name);
+	}
+}
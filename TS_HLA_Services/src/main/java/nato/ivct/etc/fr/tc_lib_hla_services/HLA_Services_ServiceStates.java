@@ -0,0 +1,167 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Services invoked by the SUT, updated by the RTI callback thread without locks
+ * and read by the test thread through point in time snapshots.
+ * <p>
+ * Every service name gets a bit index the first time it is seen. A service is
+ * claimed by a compare and set of its first seen time, then its bit is set.
+ * Bits are never cleared and a set bit always has its time written, so any
+ * copy of the words is a valid state and a snapshot reads it once.
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ServiceStates {
+
+	// Far above the number of HLA services
+	static final int CAPACITY = 1024;
+	// First seen time of a service not seen yet
+	private static final long UNSEEN = 0;
+
+	private final ConcurrentHashMap<String, Integer> indexes = new ConcurrentHashMap<String, Integer>();
+	private final AtomicInteger                      nextIndex = new AtomicInteger();
+	private final AtomicReferenceArray<String>       names = new AtomicReferenceArray<String>(CAPACITY);
+	private final AtomicLongArray                    words = new AtomicLongArray(CAPACITY / 64);
+	private final AtomicLongArray                    firstSeen = new AtomicLongArray(CAPACITY);
+	private final AtomicLong                         coveredCount = new AtomicLong();
+
+
+	/**
+	 * Immutable coverage at one point in time
+	 */
+	public static class Snapshot {
+		private final List<String> services;
+		private final long[] firstSeenNanos;
+
+		private Snapshot(final List<String> services, final long[] firstSeenNanos) {
+			this.services = Collections.unmodifiableList(services);
+			this.firstSeenNanos = firstSeenNanos;
+		}
+
+		/**
+		 * @return covered services, in first seen order
+		 */
+		public List<String> getServices() {
+			return services;
+		}
+
+		/**
+		 * @param index index in getServices()
+		 * @return System.nanoTime() of the first report of the service
+		 */
+		public long getFirstSeenNanos(final int index) {
+			return firstSeenNanos[index];
+		}
+
+		/**
+		 * @return number of covered services
+		 */
+		public int getCoveredCount() {
+			return services.size();
+		}
+
+		/**
+		 * @param service HLA service name
+		 * @return true if the service is covered
+		 */
+		public boolean isCovered(final String service) {
+			return services.contains(service);
+		}
+	}
+
+
+	/**
+	 * Mark a service as invoked
+	 * @param service HLA service name
+	 * @return true if the service was not marked yet
+	 */
+	public boolean mark(final String service) {
+
+		Integer index = indexes.get(service);
+		if (index == null) {
+			// Once full, unknown names are neither indexed nor kept
+			if (nextIndex.get() >= CAPACITY)
+				return false;
+			index = indexes.computeIfAbsent(service, name -> {
+				int newIndex = nextIndex.getAndUpdate(next -> (next < CAPACITY) ? next + 1 : next);
+				if (newIndex >= CAPACITY)
+					return null;
+				names.set(newIndex, name);
+				return newIndex;
+			});
+			if (index == null)
+				return false;
+		}
+
+		// The claim writes the time, before the bit makes the service visible
+		long now = System.nanoTime();
+		if (now == UNSEEN)
+			now++;
+		if ((firstSeen.get(index) != UNSEEN) || !firstSeen.compareAndSet(index, UNSEEN, now))
+			return false;
+
+		final long bit = 1L << (index & 63);
+		words.getAndUpdate(index >>> 6, current -> current | bit);
+		coveredCount.incrementAndGet();
+		return true;
+	}
+
+
+	/**
+	 * @return the number of covered services, without copying the state
+	 */
+	public long getCoveredCount() {
+		return coveredCount.get();
+	}
+
+
+	/**
+	 * @return the covered services at this point in time
+	 */
+	public Snapshot snapshot() {
+
+		// Bits only get set, so a copy taken while others are set is still a valid state
+		List<Integer> set = new ArrayList<Integer>();
+		for (int word = 0; word < words.length(); word++) {
+			long bits = words.get(word);
+			for (int i = 0; i < 64; i++) {
+				if ((bits & (1L << i)) != 0)
+					set.add((word << 6) + i);
+			}
+		}
+		set.sort((a, b) -> Long.compare(firstSeen.get(a), firstSeen.get(b)));
+
+		List<String> services = new ArrayList<String>(set.size());
+		long[] times = new long[set.size()];
+		for (int i = 0; i < set.size(); i++) {
+			services.add(names.get(set.get(i)));
+			times[i] = firstSeen.get(set.get(i));
+		}
+		return new Snapshot(services, times);
+	}
+}
@@ -0,0 +1,226 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+import nato.ivct.etc.fr.fctt_common.utils.TextInternationalization;
+
+/**
+ * Soak mode footprint tracking: heap usage, GC activity and callback throughput
+ * are sampled periodically in a fixed size time series. When the series is full,
+ * every other sample is dropped and the sampling stride doubles, so a run of any
+ * length keeps a bounded history covering the whole run.
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_SoakMonitor {
+
+	// Time series capacity (samples)
+	private static final int CAPACITY = 1024;
+	// Callback error logs allowed per sample period
+	private static final int MAX_LOGS_PER_PERIOD = 10;
+
+	private Logger                  logger;
+	private long                    sampleIntervalMs;
+	private long                    maxGrowthBytes;
+	private ScheduledExecutorService scheduler;
+
+	// Updated by the callback thread
+	private final AtomicLong        callbackCount = new AtomicLong();
+	private final AtomicInteger     logCount = new AtomicInteger();
+
+	// Time series, only accessed under the monitor lock
+	private long[]                  elapsedMs = new long[CAPACITY];
+	private long[]                  heapUsed = new long[CAPACITY];
+	private long[]                  heapAfterGc = new long[CAPACITY];
+	private long[]                  gcCount = new long[CAPACITY];
+	private long[]                  gcTimeMs = new long[CAPACITY];
+	private long[]                  callbacks = new long[CAPACITY];
+	private int                     size = 0;
+	private int                     stride = 1;
+	private long                    sampleIndex = 0;
+
+	private long                    startNanos;
+	private long                    baselineAfterGc = -1;
+	private long                    maxAfterGc = 0;
+	private volatile boolean        limitExceeded = false;
+
+
+	/**
+	 * @param logger reference to a logger
+	 * @param sampleInterval sample period in seconds
+	 * @param maxGrowth allowed growth of the heap retained after GC in megabytes
+	 */
+	public HLA_Services_SoakMonitor(final Logger logger, final long sampleInterval, final long maxGrowth) {
+		this.logger = logger;
+		this.sampleIntervalMs = Math.max(1, sampleInterval) * 1000;
+		this.maxGrowthBytes = maxGrowth * 1024 * 1024;
+	}
+
+
+	/**
+	 * Start sampling
+	 */
+	public synchronized void start() {
+		if (scheduler != null)
+			return;
+		startNanos = System.nanoTime();
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "HLA_Services_soak");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(this::sample, 0, sampleIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Stop sampling, after a last sample
+	 */
+	public synchronized void stop() {
+		if (scheduler == null)
+			return;
+		scheduler.shutdownNow();
+		scheduler = null;
+		sample();
+	}
+
+
+	/**
+	 * To be called once per RTI callback
+	 */
+	public void onCallback() {
+		callbackCount.incrementAndGet();
+	}
+
+
+	/**
+	 * Bound the callback error logs to a few per sample period
+	 * @return true if the message can be logged
+	 */
+	public boolean allowLog() {
+		return logCount.incrementAndGet() <= MAX_LOGS_PER_PERIOD;
+	}
+
+
+	/**
+	 * @return true if the retained heap grew past the configured limit
+	 */
+	public boolean isLimitExceeded() {
+		return limitExceeded;
+	}
+
+
+	private synchronized void sample() {
+
+		// Suppressed logs of the last period
+		int logs = logCount.getAndSet(0);
+		if (logs > MAX_LOGS_PER_PERIOD)
+			logger.warn(String.format(TextInternationalization.getString("hlaservices.soakLogsSuppressed"), logs - MAX_LOGS_PER_PERIOD));
+
+		// Heap
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		long afterGc = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			MemoryUsage collectionUsage = pool.getCollectionUsage();
+			if ((pool.getType() == MemoryType.HEAP) && (collectionUsage != null))
+				afterGc += collectionUsage.getUsed();
+		}
+
+		// GC
+		long collections = 0;
+		long collectionTime = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			collections += Math.max(0, gc.getCollectionCount());
+			collectionTime += Math.max(0, gc.getCollectionTime());
+		}
+
+		// Footprint check, on the heap retained after GC once a first GC occurred
+		if ((collections > 0) && (afterGc > 0)) {
+			if (baselineAfterGc < 0)
+				baselineAfterGc = afterGc;
+			maxAfterGc = Math.max(maxAfterGc, afterGc);
+			if (!limitExceeded && (afterGc - baselineAfterGc > maxGrowthBytes)) {
+				limitExceeded = true;
+				logger.warn(String.format(TextInternationalization.getString("hlaservices.soakHeapGrowth"), (afterGc - baselineAfterGc) / (1024 * 1024), maxGrowthBytes / (1024 * 1024)));
+			}
+		}
+
+		// Time series
+		if ((sampleIndex++ % stride) != 0)
+			return;
+		if (size == CAPACITY)
+			compact();
+		elapsedMs[size] = (System.nanoTime() - startNanos) / 1000000;
+		heapUsed[size] = heap.getUsed();
+		heapAfterGc[size] = afterGc;
+		gcCount[size] = collections;
+		gcTimeMs[size] = collectionTime;
+		callbacks[size] = callbackCount.get();
+		size++;
+	}
+
+
+	// Keep every other sample and halve the sampling rate
+	private void compact() {
+		for (int i = 0; i < size / 2; i++) {
+			elapsedMs[i] = elapsedMs[2 * i];
+			heapUsed[i] = heapUsed[2 * i];
+			heapAfterGc[i] = heapAfterGc[2 * i];
+			gcCount[i] = gcCount[2 * i];
+			gcTimeMs[i] = gcTimeMs[2 * i];
+			callbacks[i] = callbacks[2 * i];
+		}
+		size = size / 2;
+		stride = stride * 2;
+	}
+
+
+	/**
+	 * Write the time series as CSV
+	 * @param file output file
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void writeTimeSeries(final File file) throws IOException {
+
+		try (FileWriter writer = new FileWriter(file)) {
+			writer.write("elapsed_s;heap_used_kb;heap_after_gc_kb;gc_count;gc_time_ms;callbacks;callbacks_per_s\n");
+			for (int i = 0; i < size; i++) {
+				long rate = 0;
+				if ((i > 0) && (elapsedMs[i] > elapsedMs[i - 1]))
+					rate = (callbacks[i] - callbacks[i - 1]) * 1000 / (elapsedMs[i] - elapsedMs[i - 1]);
+				writer.write((elapsedMs[i] / 1000) + ";" + (heapUsed[i] / 1024) + ";" + (heapAfterGc[i] / 1024) + ";" + gcCount[i] + ";" + gcTimeMs[i] + ";" + callbacks[i] + ";" + rate + "\n");
+			}
+		}
+		logger.info(String.format(TextInternationalization.getString("hlaservices.soakSummary"), callbackCount.get(), maxAfterGc / 1024, file.getAbsolutePath()));
+	}
+}
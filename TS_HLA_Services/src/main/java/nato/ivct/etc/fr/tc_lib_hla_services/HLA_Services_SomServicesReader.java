@@ -0,0 +1,186 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming extraction of the services a SOM declares as used, from the
+ * serviceUtilization section of an IEEE 1516-2010 object model.
+ * <p>
+ * The file is read through a sliding memory mapped window and parsed with StAX:
+ * the object, interaction and data type trees are skipped without being built,
+ * and parsing stops at the end of the serviceUtilization section, so memory
+ * does not depend on the size of the SOM.
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_SomServicesReader {
+
+	private static final String SERVICE_UTILIZATION = "serviceUtilization";
+	private static final String IS_USED = "isUsed";
+	// Size of the memory mapped window
+	private static final long WINDOW_SIZE = 16 * 1024 * 1024;
+
+	private static final XMLInputFactory inputFactory = createInputFactory();
+
+
+	/**
+	 * Input stream over a file, mapped window after window
+	 */
+	private static class MappedInputStream extends InputStream {
+		private final FileChannel channel;
+		private final long size;
+		private long windowStart = 0;
+		private MappedByteBuffer window;
+
+		MappedInputStream(final File file) throws IOException {
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			this.size = channel.size();
+		}
+
+		private boolean nextWindow() throws IOException {
+			if (window != null)
+				windowStart += window.capacity();
+			if (windowStart >= size)
+				return false;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, size - windowStart));
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (((window == null) || !window.hasRemaining()) && !nextWindow())
+				return -1;
+			return window.get() & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+			if (length == 0)
+				return 0;
+			if (((window == null) || !window.hasRemaining()) && !nextWindow())
+				return -1;
+			int count = Math.min(length, window.remaining());
+			window.get(buffer, offset, count);
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			window = null;
+			channel.close();
+		}
+	}
+
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		return factory;
+	}
+
+
+	/**
+	 * @param somFiles SOM file names
+	 * @return the services declared as used by at least one of the SOMs
+	 * @throws IOException if a file cannot be read or is not well formed
+	 */
+	public static Set<String> readDeclaredServices(final Iterable<String> somFiles) throws IOException {
+		Set<String> services = new TreeSet<String>();
+		for (String somFile : somFiles)
+			services.addAll(readDeclaredServices(new File(somFile)));
+		return services;
+	}
+
+
+	/**
+	 * @param somFile SOM file
+	 * @return the services declared as used by the SOM
+	 * @throws IOException if the file cannot be read or is not well formed
+	 */
+	public static Set<String> readDeclaredServices(final File somFile) throws IOException {
+
+		Set<String> services = new TreeSet<String>();
+		try (InputStream input = new MappedInputStream(somFile)) {
+			XMLStreamReader reader = inputFactory.createXMLStreamReader(input);
+			try {
+				int depth = 0;
+				int serviceUtilizationDepth = -1;
+				while (reader.hasNext()) {
+					int event = reader.next();
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						depth++;
+						String name = reader.getLocalName();
+						if (serviceUtilizationDepth < 0) {
+							if (name.equals(SERVICE_UTILIZATION))
+								serviceUtilizationDepth = depth;
+							else if (depth == 2)
+								// Any other top level section : skip its whole tree
+								depth = skipElement(reader, depth);
+						}
+						else if (depth == serviceUtilizationDepth + 1) {
+							if (Boolean.parseBoolean(reader.getAttributeValue(null, IS_USED)))
+								services.add(name);
+						}
+					}
+					else if (event == XMLStreamConstants.END_ELEMENT) {
+						// Nothing of interest after the service utilization section
+						if (depth == serviceUtilizationDepth)
+							break;
+						depth--;
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (XMLStreamException e) {
+			throw new IOException("Cannot parse " + somFile.getAbsolutePath() + ": " + e.getMessage(), e);
+		}
+		return services;
+	}
+
+
+	// Read up to the end of the current element, return the depth after it
+	private static int skipElement(final XMLStreamReader reader, final int depth) throws XMLStreamException {
+		int level = 1;
+		while ((level > 0) && reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				level++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				level--;
+		}
+		return depth - 1;
+	}
+}
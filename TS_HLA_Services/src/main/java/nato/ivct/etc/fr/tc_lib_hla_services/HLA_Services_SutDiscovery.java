@@ -0,0 +1,145 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import hla.rti1516e.AttributeHandleSet;
+import hla.rti1516e.ObjectClassHandle;
+import hla.rti1516e.ObjectInstanceHandle;
+import hla.rti1516e.RTIambassador;
+import hla.rti1516e.exceptions.RTIexception;
+
+import org.slf4j.Logger;
+
+/**
+ * Active discovery of the SUT: instead of waiting for the RTI to reflect the
+ * HLAmanager.HLAfederate attributes, request their values for the whole class
+ * right after subscribing, then for every discovered HLAfederate instance, and
+ * retry the class request with an exponential backoff until the SUT is found.
+ * <p>
+ * Requests are issued from a dedicated thread, never from a callback.
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_SutDiscovery {
+
+	// Backoff of the class wide requests
+	private static final long INITIAL_DELAY_MS = 50;
+	private static final long MAX_DELAY_MS = 2000;
+
+	private Logger                  logger;
+	private RTIambassador           rtiAmbassador;
+	private ObjectClassHandle       federateClass;
+	private AttributeHandleSet      federateAttributes;
+	private BooleanSupplier         sutFound;
+	private ScheduledExecutorService scheduler;
+	private long                    delayMs = INITIAL_DELAY_MS;
+
+
+	/**
+	 * @param logger reference to a logger
+	 * @param rtiAmbassador RTI ambassador
+	 * @param federateClass HLAmanager.HLAfederate class handle
+	 * @param federateAttributes HLAfederate attributes identifying the SUT
+	 * @param sutFound true once the SUT is followed
+	 */
+	public HLA_Services_SutDiscovery(final Logger logger, final RTIambassador rtiAmbassador, final ObjectClassHandle federateClass, final AttributeHandleSet federateAttributes, final BooleanSupplier sutFound) {
+		this.logger = logger;
+		this.rtiAmbassador = rtiAmbassador;
+		this.federateClass = federateClass;
+		this.federateAttributes = federateAttributes;
+		this.sutFound = sutFound;
+	}
+
+
+	/**
+	 * Request the HLAfederate attributes now, then retry until the SUT is found
+	 */
+	public synchronized void start() {
+		if (scheduler != null)
+			return;
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "HLA_Services_sut_discovery");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.execute(this::requestClassUpdate);
+	}
+
+
+	/**
+	 * Stop the requests
+	 */
+	public synchronized void stop() {
+		if (scheduler == null)
+			return;
+		scheduler.shutdownNow();
+		scheduler = null;
+	}
+
+
+	/**
+	 * To be called when an HLAfederate instance is discovered
+	 * @param federateInstance discovered instance
+	 */
+	public synchronized void onDiscovered(final ObjectInstanceHandle federateInstance) {
+		if ((scheduler == null) || sutFound.getAsBoolean())
+			return;
+		try {
+			scheduler.execute(() -> requestInstanceUpdate(federateInstance));
+		}
+		catch (RejectedExecutionException e) {
+			// Stopped meanwhile
+		}
+	}
+
+
+	private void requestClassUpdate() {
+		if (sutFound.getAsBoolean())
+			return;
+		try {
+			rtiAmbassador.requestAttributeValueUpdate(federateClass, federateAttributes, null);
+		}
+		catch (RTIexception e) {
+			logger.debug("Cannot request HLAfederate attributes: " + e.getMessage());
+		}
+		// Next try
+		long delay = delayMs;
+		delayMs = Math.min(delayMs * 2, MAX_DELAY_MS);
+		synchronized (this) {
+			if (scheduler != null)
+				scheduler.schedule(this::requestClassUpdate, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+
+	private void requestInstanceUpdate(final ObjectInstanceHandle federateInstance) {
+		if (sutFound.getAsBoolean())
+			return;
+		try {
+			rtiAmbassador.requestAttributeValueUpdate(federateInstance, federateAttributes, null);
+		}
+		catch (RTIexception e) {
+			logger.debug("Cannot request attributes of " + federateInstance + ": " + e.getMessage());
+		}
+	}
+}
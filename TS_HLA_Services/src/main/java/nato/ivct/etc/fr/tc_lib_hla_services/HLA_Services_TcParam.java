@@ -18,6 +18,7 @@ package nato.ivct.etc.fr.tc_lib_hla_services;
 
 import de.fraunhofer.iosb.tc_lib.IVCT_TcParam;
 import de.fraunhofer.iosb.tc_lib.TcInconclusive;
+import hla.rti1516e.CallbackModel;
 
 import java.io.File;
 import java.net.URI;
@@ -51,6 +52,20 @@ public class HLA_Services_TcParam implements IVCT_TcParam {
     private long testDuration = 0;
     private URL[] urls;
     private String settingsDesignator;
+    // Soak mode
+    private boolean soakMode = false;
+    private long soakSampleInterval = 60;
+    private long soakMaxHeapGrowth = 256;
+    // Callback delivery
+    private CallbackModel callbackModel = CallbackModel.HLA_IMMEDIATE;
+    private double evokeMinWait = 0.1;
+    private double evokeMaxWait = 0.5;
+    // Callback latency probe & stall watchdog, off unless asked for: the SUT can observe the probe
+    private long watchdogPeriod = 0;
+    private long stallThreshold = 30;
+    // Additional federation executions monitored by the same process
+    private List<HLA_Services_TcParam> additionalFederations = new ArrayList<HLA_Services_TcParam>();
+    private String resultFileTag = "";
     
 
     public HLA_Services_TcParam(final String paramJson) throws TcInconclusive {
@@ -97,19 +112,17 @@ public class HLA_Services_TcParam implements IVCT_TcParam {
 				while (iter.hasNext()) {
 					JSONObject element = (JSONObject) iter.next();
 					String fileName = (String) element.get("fileName");
+					if (fileName == null) {
+						throw new TcInconclusive(TextInternationalization.getString("etc_fra.noFomFileNameKey"));
+					}
 					this.fomFiles.add(fileName);
 			        // add FOM file in url array
 			        try {
 			        	URI uri = (new File(fileName)).toURI();
 						this.urls[index++] = uri.toURL();
 					}
-			        catch (MalformedURLException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
-					catch (Exception e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
+			        catch (MalformedURLException | IllegalArgumentException e) {
+						throw new TcInconclusive(String.format(TextInternationalization.getString("etc_fra.invalidFomFileName"), fileName));
 					}
 				}
 			}
@@ -123,6 +136,9 @@ public class HLA_Services_TcParam implements IVCT_TcParam {
 				while (iter.hasNext()) {
 					JSONObject element = (JSONObject) iter.next();
 					String fileName = (String) element.get("fileName");
+					if (fileName == null) {
+						throw new TcInconclusive(TextInternationalization.getString("etc_fra.noSomFileNameKey"));
+					}
 					this.somFiles.add(fileName);
 				}
 			}
@@ -136,6 +152,41 @@ public class HLA_Services_TcParam implements IVCT_TcParam {
 			} catch (NumberFormatException e) {
 				throw new TcInconclusive(TextInternationalization.getString("etc_fra.notNumericalDurationKey"));
 			}
+			// get optional soak mode settings from the JSON object
+			this.soakMode = Boolean.parseBoolean((String) jsonObject.get("soakMode"));
+			this.soakSampleInterval = getOptionalLong(jsonObject, "soakSampleInterval", this.soakSampleInterval);
+			this.soakMaxHeapGrowth = getOptionalLong(jsonObject, "soakMaxHeapGrowth", this.soakMaxHeapGrowth);
+			// get optional callback model from the JSON object
+			String strCallbackModel = (String) jsonObject.get("callbackModel");
+			if (strCallbackModel != null) {
+				try {
+					this.callbackModel = CallbackModel.valueOf(strCallbackModel);
+				} catch (IllegalArgumentException e) {
+					throw new TcInconclusive(String.format(TextInternationalization.getString("hlaservices.unknownCallbackModel"), strCallbackModel));
+				}
+			}
+			this.evokeMinWait = getOptionalDouble(jsonObject, "evokeMinWait", this.evokeMinWait);
+			this.evokeMaxWait = getOptionalDouble(jsonObject, "evokeMaxWait", this.evokeMaxWait);
+			if (this.evokeMaxWait < this.evokeMinWait) {
+				throw new TcInconclusive(TextInternationalization.getString("hlaservices.evokeWaitError"));
+			}
+			// get optional watchdog settings from the JSON object
+			this.watchdogPeriod = getOptionalLong(jsonObject, "watchdogPeriod", this.watchdogPeriod);
+			this.stallThreshold = getOptionalLong(jsonObject, "stallThreshold", this.stallThreshold);
+			// get optional additional federations from the JSON object
+			JSONArray federationArray = (JSONArray) jsonObject.get("federations");
+			if (federationArray != null) {
+				Iterator iter = federationArray.iterator();
+				while (iter.hasNext()) {
+					JSONObject element = (JSONObject) iter.next();
+					String federation = (String) element.get("federationName");
+					if (federation == null) {
+		                throw new TcInconclusive(TextInternationalization.getString("etc_fra.noFederationNameKey"));
+					}
+					String sut = (String) element.get("sutName");
+					this.additionalFederations.add(new HLA_Services_TcParam(this, federation, (sut == null) ? this.sutName : sut));
+				}
+			}
 		}
 		catch (ParseException e1) {
 			throw new TcInconclusive(TextInternationalization.getString("etc_fra.invalidConfig"));
@@ -143,6 +194,73 @@ public class HLA_Services_TcParam implements IVCT_TcParam {
     }
 
 
+    /**
+     * Parameters of an additional federation execution
+     * @param base parameters of the main federation execution
+     * @param federationName additional federation name
+     * @param sutName system under test name in this federation
+     */
+    private HLA_Services_TcParam(final HLA_Services_TcParam base, final String federationName, final String sutName) {
+    	this.federationName = federationName;
+    	this.sutName = sutName;
+    	this.rtiAddress = base.rtiAddress;
+    	this.rtiPort = base.rtiPort;
+    	this.settingsDesignator = base.settingsDesignator;
+    	this.resultDir = base.resultDir;
+    	this.fomFiles = base.fomFiles;
+    	this.somFiles = base.somFiles;
+    	this.urls = base.urls;
+    	this.testDuration = base.testDuration;
+    	this.callbackModel = base.callbackModel;
+    	this.evokeMinWait = base.evokeMinWait;
+    	this.evokeMaxWait = base.evokeMaxWait;
+    	this.watchdogPeriod = base.watchdogPeriod;
+    	this.stallThreshold = base.stallThreshold;
+    	// Footprint is tracked once for the process, by the main federation
+    	this.soakMode = false;
+    	// The federation name is free text, the tag goes into file names
+    	this.resultFileTag = federationName.replaceAll("[^A-Za-z0-9_.-]", "_") + "_";
+    }
+
+
+    /**
+     * @param jsonObject test case parameters
+     * @param key optional key
+     * @param defaultValue value if the key is absent
+     * @return the numerical value of the key
+     * @throws TcInconclusive if the value is not numerical
+     */
+    private static long getOptionalLong(final JSONObject jsonObject, final String key, final long defaultValue) throws TcInconclusive {
+    	String strValue = (String) jsonObject.get(key);
+    	if (strValue == null)
+    		return defaultValue;
+    	try {
+    		return Long.parseLong(strValue, 10);
+    	} catch (NumberFormatException e) {
+    		throw new TcInconclusive(String.format(TextInternationalization.getString("etc_fra.notNumericalKey"), key, strValue));
+    	}
+    }
+
+
+    /**
+     * @param jsonObject test case parameters
+     * @param key optional key
+     * @param defaultValue value if the key is absent
+     * @return the numerical value of the key
+     * @throws TcInconclusive if the value is not numerical
+     */
+    private static double getOptionalDouble(final JSONObject jsonObject, final String key, final double defaultValue) throws TcInconclusive {
+    	String strValue = (String) jsonObject.get(key);
+    	if (strValue == null)
+    		return defaultValue;
+    	try {
+    		return Double.parseDouble(strValue);
+    	} catch (NumberFormatException e) {
+    		throw new TcInconclusive(String.format(TextInternationalization.getString("etc_fra.notNumericalKey"), key, strValue));
+    	}
+    }
+
+
     /**
      * @return the federation name
      */
@@ -224,4 +342,84 @@ public class HLA_Services_TcParam implements IVCT_TcParam {
     public long getTestDuration() {
         return this.testDuration;
     }
+
+
+    /**
+     * @return true if the soak mode is on
+     */
+    public boolean isSoakMode() {
+        return this.soakMode;
+    }
+
+
+    /**
+     * @return soak mode sample period in seconds
+     */
+    public long getSoakSampleInterval() {
+        return this.soakSampleInterval;
+    }
+
+
+    /**
+     * @return soak mode allowed heap growth in megabytes
+     */
+    public long getSoakMaxHeapGrowth() {
+        return this.soakMaxHeapGrowth;
+    }
+
+
+    /**
+     * @return the callback model used to connect to the RTI
+     */
+    public CallbackModel getCallbackModel() {
+        return this.callbackModel;
+    }
+
+
+    /**
+     * @return minimum wait of evokeMultipleCallbacks in seconds
+     */
+    public double getEvokeMinWait() {
+        return this.evokeMinWait;
+    }
+
+
+    /**
+     * @return maximum wait of evokeMultipleCallbacks in seconds
+     */
+    public double getEvokeMaxWait() {
+        return this.evokeMaxWait;
+    }
+
+
+    /**
+     * @return period of the watchdog probe in seconds, 0 if the watchdog is off
+     */
+    public long getWatchdogPeriod() {
+        return this.watchdogPeriod;
+    }
+
+
+    /**
+     * @return time in seconds without probe reply, callback or report after which a stall is reported
+     */
+    public long getStallThreshold() {
+        return this.stallThreshold;
+    }
+
+
+    /**
+     * @return parameters of the additional federation executions, empty if none
+     */
+    public List<HLA_Services_TcParam> getAdditionalFederations() {
+        return this.additionalFederations;
+    }
+
+
+    /**
+     * @return tag inserted in the result file names, empty for the main federation execution
+     */
+    public String getResultFileTag() {
+        return this.resultFileTag;
+    }
 }
@@ -0,0 +1,333 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import hla.rti1516e.InteractionClassHandle;
+import hla.rti1516e.ParameterHandleValueMap;
+import hla.rti1516e.RTIambassador;
+import hla.rti1516e.exceptions.RTIexception;
+
+import org.slf4j.Logger;
+
+/**
+ * Callback latency probe and stall watchdog.
+ * <p>
+ * Every period, a MOM HLArequestSynchronizationPoints request is sent; the RTI
+ * answers with an HLAreportSynchronizationPoints interaction delivered through
+ * the callback thread, like the SUT reports. The round trip goes into a log2
+ * histogram. One probe is in flight at a time, and a report requested by
+ * another federate may answer it, so the histogram is a lower bound. A probe
+ * without reply after the stall threshold is counted as timed out and replaced
+ * by a new one, so a lost reply does not stop the probing.
+ * <p>
+ * When the stall threshold is passed, the watchdog tells apart:
+ * <ul>
+ * <li>no callback at all: the callback thread is stalled,</li>
+ * <li>callbacks but no probe reply: the RTI is congested,</li>
+ * <li>probe replies but no SUT report: the SUT is idle.</li>
+ * </ul>
+ * Changes of state are logged and kept for the result file.
+ * <p>
+ * The watchdog is off unless the watchdogPeriod parameter is set: the report
+ * goes to every federate subscribed to it, the SUT included, which would then
+ * be credited a receiveInteraction it only got because of the probe.
+ *
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_Watchdog {
+
+	private static final String PROBE_REQUEST = "HLAmanager.HLAfederation.HLArequest.HLArequestSynchronizationPoints";
+	private static final String PROBE_REPLY = "HLAmanager.HLAfederation.HLAreport.HLAreportSynchronizationPoints";
+	// Bucket i counts round trips in [2^i, 2^(i+1)) microseconds
+	private static final int BUCKETS = 32;
+	// Alerts kept for the result file
+	private static final int MAX_ALERTS = 1000;
+
+	private static final String STATE_OK = "ok";
+	private static final String STATE_CALLBACK_STALLED = "callback thread stalled";
+	private static final String STATE_RTI_CONGESTED = "RTI congested";
+	private static final String STATE_SUT_IDLE = "SUT idle";
+
+	private Logger                  logger;
+	private RTIambassador           rtiAmbassador;
+	private long                    periodMs;
+	private long                    stallThresholdNanos;
+	private LongSupplier            lastCallbackNanos;
+	private LongSupplier            lastReportNanos;
+	private InteractionClassHandle  probeRequestClass;
+	private InteractionClassHandle  probeReplyClass;
+	private ParameterHandleValueMap probeParameters;
+	private ScheduledExecutorService scheduler;
+	private long                    startNanos;
+
+	// Send time of the probe in flight, 0 if none
+	private final AtomicLong        probeSentNanos = new AtomicLong();
+	private final AtomicLong        probeCount = new AtomicLong();
+	private final AtomicLong        replyCount = new AtomicLong();
+	private final AtomicLong        timeoutCount = new AtomicLong();
+	private final AtomicLong        minNanos = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong        maxNanos = new AtomicLong();
+	private volatile long           lastRoundTripNanos = 0;
+	private final AtomicLongArray   histogram = new AtomicLongArray(BUCKETS);
+
+	// Only accessed by the watchdog thread, then under the monitor lock
+	private String                  state = STATE_OK;
+	private List<String>            alerts = new ArrayList<String>();
+
+
+	/**
+	 * @param logger reference to a logger
+	 * @param rtiAmbassador RTI ambassador, joined
+	 * @param period probe period in seconds
+	 * @param stallThreshold seconds without probe reply, callback or report after which a stall is reported
+	 * @param lastCallbackNanos System.nanoTime() of the last callback
+	 * @param lastReportNanos System.nanoTime() of the last SUT report, 0 if none
+	 */
+	public HLA_Services_Watchdog(final Logger logger, final RTIambassador rtiAmbassador, final long period, final long stallThreshold, final LongSupplier lastCallbackNanos, final LongSupplier lastReportNanos) {
+		this.logger = logger;
+		this.rtiAmbassador = rtiAmbassador;
+		this.periodMs = Math.max(1, period) * 1000;
+		this.stallThresholdNanos = Math.max(1, stallThreshold) * 1000000000L;
+		this.lastCallbackNanos = lastCallbackNanos;
+		this.lastReportNanos = lastReportNanos;
+	}
+
+
+	/**
+	 * Publish the probe request, subscribe its reply and start probing
+	 * @return true means error, false means correct
+	 */
+	public synchronized boolean start() {
+
+		if (scheduler != null)
+			return false;
+		try {
+			probeRequestClass = rtiAmbassador.getInteractionClassHandle(PROBE_REQUEST);
+			probeReplyClass = rtiAmbassador.getInteractionClassHandle(PROBE_REPLY);
+			rtiAmbassador.publishInteractionClass(probeRequestClass);
+			rtiAmbassador.subscribeInteractionClass(probeReplyClass);
+			probeParameters = rtiAmbassador.getParameterHandleValueMapFactory().create(0);
+		}
+		catch (RTIexception e) {
+			logger.warn("Watchdog not started: " + e.getMessage());
+			return true;
+		}
+
+		startNanos = System.nanoTime();
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "HLA_Services_watchdog");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::check, 0, periodMs, TimeUnit.MILLISECONDS);
+		return false;
+	}
+
+
+	/**
+	 * Stop probing
+	 */
+	public void stop() {
+		ScheduledExecutorService stopped;
+		synchronized (this) {
+			stopped = scheduler;
+			scheduler = null;
+		}
+		if (stopped == null)
+			return;
+		stopped.shutdownNow();
+		try {
+			stopped.awaitTermination(periodMs, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * @param interactionClass class of a received interaction
+	 * @return true if the interaction is a probe reply
+	 */
+	public boolean isProbeReply(final InteractionClassHandle interactionClass) {
+		return (probeReplyClass != null) && probeReplyClass.equals(interactionClass);
+	}
+
+
+	/**
+	 * To be called by the callback thread when a probe reply is received
+	 */
+	public void onProbeReply() {
+
+		long sent = probeSentNanos.getAndSet(0);
+		if (sent == 0)
+			return;
+		long roundTrip = System.nanoTime() - sent;
+		lastRoundTripNanos = roundTrip;
+		replyCount.incrementAndGet();
+		minNanos.accumulateAndGet(roundTrip, Math::min);
+		maxNanos.accumulateAndGet(roundTrip, Math::max);
+		long micros = Math.max(1, roundTrip / 1000);
+		histogram.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros)));
+	}
+
+
+	// Watchdog thread
+	private void check() {
+
+		long now = System.nanoTime();
+		long sent = probeSentNanos.get();
+		if (sent != 0) {
+			// One probe in flight at a time
+			if (now - sent <= stallThresholdNanos)
+				return;
+			if (now - lastCallbackNanos.getAsLong() > stallThresholdNanos)
+				setState(STATE_CALLBACK_STALLED, now - Math.max(lastCallbackNanos.getAsLong(), startNanos));
+			else
+				setState(STATE_RTI_CONGESTED, now - sent);
+			// Reply lost or late : replace the probe, unless the reply just came
+			if (!probeSentNanos.compareAndSet(sent, 0))
+				return;
+			timeoutCount.incrementAndGet();
+			sendProbe(now);
+			return;
+		}
+
+		long lastReport = Math.max(lastReportNanos.getAsLong(), startNanos);
+		if (now - lastReport > stallThresholdNanos)
+			setState(STATE_SUT_IDLE, now - lastReport);
+		else
+			setState(STATE_OK, 0);
+		sendProbe(now);
+	}
+
+
+	private void sendProbe(final long now) {
+
+		probeSentNanos.set(now);
+		try {
+			rtiAmbassador.sendInteraction(probeRequestClass, probeParameters, null);
+			probeCount.incrementAndGet();
+		}
+		catch (RTIexception e) {
+			probeSentNanos.set(0);
+			logger.debug("Cannot send watchdog probe: " + e.getMessage());
+		}
+	}
+
+
+	private synchronized void setState(final String newState, final long sinceNanos) {
+
+		if (newState.equals(state))
+			return;
+		String message;
+		if (newState.equals(STATE_OK))
+			message = "Watchdog: back to normal after " + state;
+		else if (newState.equals(STATE_SUT_IDLE))
+			message = String.format(Locale.ROOT, "Watchdog: %s, no service report for %d s, last callback round trip %s", newState, sinceNanos / 1000000000L, formatMs(lastRoundTripNanos));
+		else if (newState.equals(STATE_CALLBACK_STALLED))
+			message = String.format(Locale.ROOT, "Watchdog: %s, no callback for %d s", newState, sinceNanos / 1000000000L);
+		else
+			message = String.format(Locale.ROOT, "Watchdog: %s, no reply to the probe for %d s", newState, sinceNanos / 1000000000L);
+		state = newState;
+
+		if (newState.equals(STATE_OK))
+			logger.info(message);
+		else
+			logger.warn(message);
+		if (alerts.size() < MAX_ALERTS)
+			alerts.add(String.format(Locale.ROOT, "%10.1f s   %s", (System.nanoTime() - startNanos) / 1e9, message));
+	}
+
+
+	/**
+	 * @param quantile between 0 and 1
+	 * @return upper bound in nanoseconds of the round trip quantile, 0 if no reply
+	 */
+	public long getQuantileUpperBound(final double quantile) {
+
+		long total = replyCount.get();
+		if (total == 0)
+			return 0;
+		long rank = (long) Math.ceil(quantile * total);
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += histogram.get(i);
+			if (count >= rank)
+				return Math.min((1L << (i + 1)) * 1000, maxNanos.get());
+		}
+		return maxNanos.get();
+	}
+
+
+	/**
+	 * @return one line summary of the round trips
+	 */
+	public String getSummary() {
+		if (replyCount.get() == 0)
+			return "Watchdog: " + probeCount.get() + " probes, no reply, " + timeoutCount.get() + " timed out";
+		return String.format(Locale.ROOT, "Watchdog: %d probes, %d replies, %d timed out, round trip min %s, p50 <= %s, p99 <= %s, max %s",
+				probeCount.get(), replyCount.get(), timeoutCount.get(), formatMs(minNanos.get()), formatMs(getQuantileUpperBound(0.5)),
+				formatMs(getQuantileUpperBound(0.99)), formatMs(maxNanos.get()));
+	}
+
+
+	/**
+	 * Write the round trip histogram and the alerts
+	 * @param file output file
+	 * @throws IOException if the file cannot be written
+	 */
+	public synchronized void write(final File file) throws IOException {
+
+		try (FileWriter writer = new FileWriter(file)) {
+			writer.write("###########################################################\r\n");
+			writer.write("Probe : " + PROBE_REQUEST + " -> " + PROBE_REPLY + "\r\n");
+			writer.write(getSummary() + "\r\n");
+			writer.write("###########################################################\r\n");
+			writer.write("\r\n");
+			writer.write(String.format(Locale.ROOT, "%-24s %10s%n", "Round trip (ms)", "Count"));
+			for (int i = 0; i < BUCKETS; i++) {
+				if (histogram.get(i) == 0)
+					continue;
+				String range = String.format(Locale.ROOT, "[%.3f, %.3f[", (1L << i) / 1000.0, (1L << (i + 1)) / 1000.0);
+				writer.write(String.format(Locale.ROOT, "%-24s %10d%n", range, histogram.get(i)));
+			}
+			writer.write("\r\n");
+			writer.write("Alerts : " + (alerts.isEmpty() ? "none" : "") + "\r\n");
+			for (String alert : alerts)
+				writer.write(alert + "\r\n");
+		}
+	}
+
+
+	private static String formatMs(final long nanos) {
+		return String.format(Locale.ROOT, "%.3f ms", nanos / 1e6);
+	}
+}
@@ -0,0 +1,159 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ModelRegistryTest {
+
+	private static final Map<String, String> NO_HASHES = Collections.emptyMap();
+
+	private File workDir;
+	private AtomicInteger loads = new AtomicInteger();
+
+
+	@Before
+	public void createWorkDir() throws IOException {
+		workDir = Files.createTempDirectory("HLA_Services_registry").toFile();
+	}
+
+
+	@After
+	public void deleteWorkDir() throws IOException {
+		try (Stream<Path> paths = Files.walk(workDir.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+
+	@Test
+	public void sameContentLoadedOnce() throws IOException {
+
+		HLA_Services_ModelRegistry registry = new HLA_Services_ModelRegistry(Long.MAX_VALUE);
+		// Same content, other paths
+		List<String> fomA = files("a_fom.xml", "FOM");
+		List<String> fomB = files("b_fom.xml", "FOM");
+		List<String> som = files("som.xml", "SOM");
+
+		HLA_Services_ModelRegistry.Lease first = registry.acquire(fomA, som, NO_HASHES, this::load);
+		HLA_Services_ModelRegistry.Lease second = registry.acquire(fomB, som, NO_HASHES, this::load);
+		assertFalse(first.isShared());
+		assertTrue(second.isShared());
+		assertEquals(1, loads.get());
+		assertEquals(1, registry.size());
+
+		// Other content
+		HLA_Services_ModelRegistry.Lease third = registry.acquire(files("c_fom.xml", "Other FOM"), som, NO_HASHES, this::load);
+		assertFalse(third.isShared());
+		assertEquals(2, loads.get());
+		assertEquals(2, registry.size());
+	}
+
+
+	@Test
+	public void modelInUseNotEvicted() throws IOException {
+
+		// Limit below the size of one model
+		HLA_Services_ModelRegistry registry = new HLA_Services_ModelRegistry(1);
+		List<String> som = files("som.xml", "SOM");
+
+		HLA_Services_ModelRegistry.Lease first = registry.acquire(files("a_fom.xml", "FOM A"), som, NO_HASHES, this::load);
+		HLA_Services_ModelRegistry.Lease second = registry.acquire(files("b_fom.xml", "FOM B"), som, NO_HASHES, this::load);
+		assertEquals(2, registry.size());
+
+		// Released twice : counted once
+		first.release();
+		first.release();
+		assertEquals(1, registry.size());
+		second.release();
+		assertEquals(0, registry.size());
+		assertEquals(0, registry.getEstimatedBytes());
+	}
+
+
+	@Test
+	public void leastRecentlyUsedEvictedFirst() throws IOException {
+
+		List<String> som = files("som.xml", "SOM");
+		List<String> fomA = files("a_fom.xml", "FOM A");
+		List<String> fomB = files("b_fom.xml", "FOM B");
+		List<String> fomC = files("c_fom.xml", "FOM C");
+
+		// Room for two models of the same size
+		HLA_Services_ModelRegistry probe = new HLA_Services_ModelRegistry(Long.MAX_VALUE);
+		probe.acquire(fomA, som, NO_HASHES, this::load);
+		long modelBytes = probe.getEstimatedBytes();
+		HLA_Services_ModelRegistry registry = new HLA_Services_ModelRegistry(2 * modelBytes);
+
+		registry.acquire(fomA, som, NO_HASHES, this::load).release();
+		registry.acquire(fomB, som, NO_HASHES, this::load).release();
+		// A used again : B is now the least recently used
+		assertTrue(registry.acquire(fomA, som, NO_HASHES, this::load).isShared());
+		registry.acquire(fomC, som, NO_HASHES, this::load);
+		assertEquals(2, registry.size());
+
+		loads.set(0);
+		assertTrue(registry.acquire(fomA, som, NO_HASHES, this::load).isShared());
+		assertFalse(registry.acquire(fomB, som, NO_HASHES, this::load).isShared());
+		assertEquals(1, loads.get());
+	}
+
+
+	@Test
+	public void invalidModelNotKept() throws IOException {
+
+		HLA_Services_ModelRegistry registry = new HLA_Services_ModelRegistry(Long.MAX_VALUE);
+		assertEquals(null, registry.acquire(files("fom.xml", "FOM"), files("som.xml", "SOM"), NO_HASHES, () -> null));
+		assertEquals(0, registry.size());
+		assertEquals(0, registry.getEstimatedBytes());
+	}
+
+
+	private HLA_Services_ModelRegistry.SharedModel load() {
+		loads.incrementAndGet();
+		return new HLA_Services_ModelRegistry.SharedModel(null, Collections.<String>emptySet(), workDir.getAbsolutePath(), "SutA");
+	}
+
+
+	private List<String> files(final String name, final String content) throws IOException {
+		File file = new File(workDir, name);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return Arrays.asList(file.getAbsolutePath());
+	}
+}
@@ -0,0 +1,42 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ResultReportTest {
+
+	@Test
+	public void serviceLinesOnly() {
+
+		String results = "                  Services\r\n"
+				+ "connect            X\r\n"
+				+ "Federation         management\r\n"
+				+ "joinFederationExecution X\r\n"
+				+ "#####################\r\n"
+				+ "\r\n"
+				+ "sendInteraction\r\n";
+		assertEquals(Arrays.asList("connect", "joinFederationExecution", "sendInteraction"), HLA_Services_ResultReport.parseServiceLines(results));
+	}
+}
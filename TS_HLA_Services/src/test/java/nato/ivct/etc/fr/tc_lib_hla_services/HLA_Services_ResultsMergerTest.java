@@ -0,0 +1,162 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ResultsMergerTest {
+
+	private File workDir;
+	private File outputDir;
+	private int runNumber = 0;
+
+
+	@Before
+	public void createWorkDir() throws IOException {
+		workDir = Files.createTempDirectory("HLA_Services_merger").toFile();
+		outputDir = new File(workDir, "output");
+	}
+
+
+	@After
+	public void deleteWorkDir() throws IOException {
+		try (Stream<Path> paths = Files.walk(workDir.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+
+	@Test
+	public void spilledRunsMergedInSeveralPasses() throws IOException {
+
+		File nodeA = new File(workDir, "nodeA");
+		File nodeB = new File(workDir, "nodeB");
+		writeRun(nodeA, "SutA", Arrays.asList("connect", "joinFederationExecution"), Arrays.asList("sendInteraction", "updateAttributeValues"));
+		writeRun(nodeA, "SutA", Arrays.asList("connect", "sendInteraction"), Arrays.asList("updateAttributeValues"));
+		writeRun(nodeB, "SutA", Arrays.asList("connect"), Arrays.asList("joinFederationExecution", "deleteObjectInstance"));
+		writeRun(nodeB, "SutB", Arrays.asList("publishInteractionClass"), Arrays.asList("connect"));
+
+		List<File> files;
+		// Two records per run file, two run files merged at a time
+		try (HLA_Services_ResultsMerger merger = new HLA_Services_ResultsMerger(outputDir, 2, 2)) {
+			merger.addResultDir(nodeA);
+			merger.addResultDir(nodeB);
+			files = merger.merge();
+			assertEquals(4, merger.getReportCount());
+			assertTrue(merger.getMergePasses() >= 2);
+		}
+
+		// Certified in at least one run
+		HLA_Services_ResultReport certifiedA = HLA_Services_ResultReport.parse(find(files, HLA_Services_ResultReport.CERTIFIED_PREFIX + HLA_Services_ResultsMerger.MERGED_TAG + "SutA_"));
+		assertEquals("SutA", certifiedA.getSutName());
+		assertEquals(Arrays.asList("connect", "joinFederationExecution", "sendInteraction"), certifiedA.getServices());
+		HLA_Services_ResultReport nonCertifiedA = HLA_Services_ResultReport.parse(find(files, HLA_Services_ResultReport.NON_CERTIFIED_PREFIX + HLA_Services_ResultsMerger.MERGED_TAG + "SutA_"));
+		assertEquals(Arrays.asList("deleteObjectInstance", "updateAttributeValues"), nonCertifiedA.getServices());
+		HLA_Services_ResultReport certifiedB = HLA_Services_ResultReport.parse(find(files, HLA_Services_ResultReport.CERTIFIED_PREFIX + HLA_Services_ResultsMerger.MERGED_TAG + "SutB_"));
+		assertEquals(Arrays.asList("publishInteractionClass"), certifiedB.getServices());
+
+		// Run counts in the summary only
+		List<String> summary = Files.readAllLines(find(files, HLA_Services_ResultsMerger.SUMMARY_PREFIX).toPath(), StandardCharsets.UTF_8);
+		assertEquals(Arrays.asList("SutA", "connect", "3", "3"), fields(summary, "SutA", "connect"));
+		assertEquals(Arrays.asList("SutA", "joinFederationExecution", "1", "3"), fields(summary, "SutA", "joinFederationExecution"));
+		assertEquals(Arrays.asList("SutA", "updateAttributeValues", "0", "3"), fields(summary, "SutA", "updateAttributeValues"));
+		assertEquals(Arrays.asList("SutB", "connect", "0", "1"), fields(summary, "SutB", "connect"));
+
+		// Temporary runs deleted
+		List<String> outputFiles = Arrays.asList(outputDir.list());
+		assertEquals(files.size(), outputFiles.size());
+	}
+
+
+	@Test
+	public void singleRunFile() throws IOException {
+
+		File node = new File(workDir, "node");
+		writeRun(node, "SutA", Arrays.asList("connect"), Arrays.asList("disconnect"));
+
+		try (HLA_Services_ResultsMerger merger = new HLA_Services_ResultsMerger(outputDir, 2)) {
+			merger.addResultDir(node);
+			List<File> files = merger.merge();
+			assertEquals(0, merger.getMergePasses());
+			assertEquals(3, files.size());
+		}
+	}
+
+
+	// Result files as written by validateServices()
+	private void writeRun(final File resultDir, final String sutName, final List<String> certified, final List<String> nonCertified) throws IOException {
+
+		resultDir.mkdirs();
+		String date = String.format("2018_01_%02d_10h00m00s", ++runNumber);
+		Files.write(new File(resultDir, HLA_Services_ResultReport.CERTIFIED_PREFIX + date + ".txt").toPath(), report(sutName, date, certified).getBytes(StandardCharsets.UTF_8));
+		Files.write(new File(resultDir, HLA_Services_ResultReport.NON_CERTIFIED_PREFIX + date + ".txt").toPath(), report(sutName, date, nonCertified).getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	private static String report(final String sutName, final String date, final List<String> services) {
+
+		StringBuilder report = new StringBuilder();
+		report.append("###########################################################\r\n");
+		report.append("Results for federate \"").append(sutName).append("\"\r\n");
+		report.append("Date : ").append(date).append("\r\n\r\n");
+		report.append("Services\r\n\r\n");
+		report.append("Explanations\r\n");
+		report.append("###########################################################\r\n\r\n");
+		report.append(String.format("%-30s %-5s %-45s%n", "", "Services", ""));
+		for (String service : services)
+			report.append(String.format("%-30s %-5s %-45s%n", service, "", ""));
+		return report.toString();
+	}
+
+
+	private static File find(final List<File> files, final String prefix) {
+		for (File file : files) {
+			if (file.getName().startsWith(prefix))
+				return file;
+		}
+		throw new AssertionError("No file " + prefix + "*");
+	}
+
+
+	private static List<String> fields(final List<String> lines, final String sutName, final String service) {
+		for (String line : lines) {
+			List<String> fields = new ArrayList<String>(Arrays.asList(line.trim().split("\\s+")));
+			if ((fields.size() == 4) && fields.get(0).equals(sutName) && fields.get(1).equals(service))
+				return fields;
+		}
+		return null;
+	}
+}
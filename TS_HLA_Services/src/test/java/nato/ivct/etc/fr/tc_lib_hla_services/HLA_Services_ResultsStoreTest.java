@@ -0,0 +1,127 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ResultsStoreTest {
+
+	private File storeDir;
+	private HLA_Services_ResultsStore store;
+
+
+	@Before
+	public void createStore() throws IOException {
+		storeDir = Files.createTempDirectory("HLA_Services_store").toFile();
+		store = new HLA_Services_ResultsStore(storeDir);
+	}
+
+
+	@After
+	public void deleteStore() throws IOException {
+		try (Stream<Path> paths = Files.walk(storeDir.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+
+	@Test
+	public void addRun() throws IOException {
+
+		assertTrue(store.addRun("2018_01_09_10h00m00s", "SutA", Arrays.asList("connect", "joinFederationExecution"), Arrays.asList("sendInteraction"), "run1"));
+
+		assertEquals(Collections.singleton("SutA"), store.getSuts());
+		assertEquals(3, store.getServices().size());
+		assertEquals(2, store.getServicesOfSut("SutA", true).size());
+		assertEquals(Collections.singleton("sendInteraction"), store.getServicesOfSut("SutA", false));
+		assertEquals(Collections.singleton("SutA"), store.getSutsUsingService("connect"));
+		assertTrue(store.getSutsUsingService("sendInteraction").isEmpty());
+	}
+
+
+	@Test
+	public void duplicateSourceAddedOnce() throws IOException {
+
+		assertTrue(store.addRun("2018_01_09_10h00m00s", "SutA", Arrays.asList("connect"), Collections.<String>emptyList(), "run1"));
+		assertFalse(store.addRun("2018_01_09_10h00m00s", "SutA", Arrays.asList("connect"), Collections.<String>emptyList(), "run1"));
+		assertTrue(store.addRun("2018_01_09_11h00m00s", "SutA", Arrays.asList("connect"), Collections.<String>emptyList(), "run2"));
+
+		assertEquals(2, store.getSutHistory("SutA", null, null).size());
+	}
+
+
+	@Test
+	public void monthPartitions() throws IOException {
+
+		store.addRun("2018_01_31_23h59m59s", "SutA", Arrays.asList("connect"), Collections.<String>emptyList(), "run1");
+		store.addRun("2018_02_01_00h00m00s", "SutA", Arrays.asList("connect"), Collections.<String>emptyList(), "run2");
+		store.addRun("2018_02_15_12h00m00s", "SutB", Arrays.asList("connect"), Collections.<String>emptyList(), "run3");
+
+		assertEquals(Arrays.asList("2018_01.idx", "2018_02.idx"), listFiles(new File(storeDir, "sut/SutA")));
+		assertEquals(Arrays.asList("2018_02.idx"), listFiles(new File(storeDir, "sut/SutB")));
+		assertEquals(Arrays.asList("2018_01.idx", "2018_02.idx"), listFiles(new File(storeDir, "service/connect")));
+		assertEquals(Arrays.asList("2018_01.idx", "2018_02.idx"), listFiles(new File(storeDir, "sources")));
+	}
+
+
+	@Test
+	public void dateRangeQueries() throws IOException {
+
+		store.addRun("2018_01_10_10h00m00s", "SutA", Arrays.asList("connect"), Collections.<String>emptyList(), "run1");
+		store.addRun("2018_02_10_10h00m00s", "SutA", Collections.<String>emptyList(), Arrays.asList("connect"), "run2");
+		store.addRun("2018_03_10_10h00m00s", "SutB", Arrays.asList("connect"), Collections.<String>emptyList(), "run3");
+
+		List<HLA_Services_ResultsStore.Record> records = store.getServiceHistory("connect", "2018_02", "2018_03_10_10h00m00s");
+		assertEquals(2, records.size());
+		assertEquals("2018_02_10_10h00m00s", records.get(0).getDate());
+		assertFalse(records.get(0).isCertified());
+		assertEquals("SutB", records.get(1).getSutName());
+
+		// Bounds inside a month
+		assertEquals(1, store.getSutHistory("SutA", "2018_01_10_10h00m01s", null).size());
+		assertEquals(1, store.getSutHistory("SutA", null, "2018_02_10_09h59m59s").size());
+		assertEquals(0, store.getSutHistory("SutA", "2018_03", null).size());
+	}
+
+
+	private static List<String> listFiles(final File dir) {
+		String[] names = dir.list();
+		List<String> files = new ArrayList<String>(Arrays.asList(names == null ? new String[0] : names));
+		Collections.sort(files);
+		return files;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_ServiceStatesTest {
+
+	private static final int SERVICES = 300;
+	private static final int WRITERS = 4;
+
+
+	@Test
+	public void markOnce() {
+
+		HLA_Services_ServiceStates states = new HLA_Services_ServiceStates();
+		assertTrue(states.mark("joinFederationExecution"));
+		assertFalse(states.mark("joinFederationExecution"));
+		assertTrue(states.mark("resignFederationExecution"));
+		assertEquals(2, states.getCoveredCount());
+	}
+
+
+	@Test
+	public void snapshotInFirstSeenOrder() {
+
+		HLA_Services_ServiceStates states = new HLA_Services_ServiceStates();
+		states.mark("connect");
+		states.mark("joinFederationExecution");
+		states.mark("connect");
+		states.mark("publishInteractionClass");
+
+		HLA_Services_ServiceStates.Snapshot snapshot = states.snapshot();
+		assertEquals(Arrays.asList("connect", "joinFederationExecution", "publishInteractionClass"), snapshot.getServices());
+		for (int i = 1; i < snapshot.getCoveredCount(); i++)
+			assertTrue(snapshot.getFirstSeenNanos(i - 1) <= snapshot.getFirstSeenNanos(i));
+		assertTrue(snapshot.isCovered("connect"));
+		assertFalse(snapshot.isCovered("disconnect"));
+	}
+
+
+	@Test
+	public void namesPastCapacityIgnored() {
+
+		HLA_Services_ServiceStates states = new HLA_Services_ServiceStates();
+		for (int i = 0; i < HLA_Services_ServiceStates.CAPACITY; i++)
+			assertTrue(states.mark("service" + i));
+		assertFalse(states.mark("oneMore"));
+		assertFalse(states.mark("oneMore"));
+		assertFalse(states.mark("service0"));
+		assertEquals(HLA_Services_ServiceStates.CAPACITY, states.getCoveredCount());
+		assertFalse(states.snapshot().isCovered("oneMore"));
+	}
+
+
+	@Test
+	public void concurrentMarksAndSnapshots() throws InterruptedException {
+
+		final HLA_Services_ServiceStates states = new HLA_Services_ServiceStates();
+		final AtomicInteger firstMarks = new AtomicInteger();
+		final AtomicReference<String> error = new AtomicReference<String>();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch writersDone = new CountDownLatch(WRITERS);
+
+		// Every writer marks all the services, in a different order
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int w = 0; w < WRITERS; w++) {
+			final int offset = w * 7;
+			threads.add(new Thread(() -> {
+				try {
+					start.await();
+					for (int i = 0; i < SERVICES; i++) {
+						if (states.mark("service" + ((i + offset) % SERVICES)))
+							firstMarks.incrementAndGet();
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				writersDone.countDown();
+			}));
+		}
+
+		// Snapshots only grow, and every covered service has its time
+		threads.add(new Thread(() -> {
+			try {
+				start.await();
+				int previous = 0;
+				do {
+					HLA_Services_ServiceStates.Snapshot snapshot = states.snapshot();
+					if (snapshot.getCoveredCount() < previous)
+						error.compareAndSet(null, "snapshot shrank from " + previous + " to " + snapshot.getCoveredCount());
+					for (int i = 0; i < snapshot.getCoveredCount(); i++) {
+						if (snapshot.getFirstSeenNanos(i) == 0)
+							error.compareAndSet(null, snapshot.getServices().get(i) + " covered without time");
+					}
+					previous = snapshot.getCoveredCount();
+				}
+				while (writersDone.getCount() > 0);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+
+		for (Thread thread : threads)
+			thread.start();
+		start.countDown();
+		for (Thread thread : threads)
+			thread.join(30000);
+
+		assertEquals(null, error.get());
+		assertEquals(SERVICES, firstMarks.get());
+		assertEquals(SERVICES, states.getCoveredCount());
+		assertEquals(SERVICES, states.snapshot().getCoveredCount());
+	}
+}
@@ -0,0 +1,77 @@
+/*
+Copyright 2017, FRANCE (DGA/Capgemini)
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package nato.ivct.etc.fr.tc_lib_hla_services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author FRANCE (DGA/Capgemini)
+ */
+public class HLA_Services_SomServicesReaderTest {
+
+	private File workDir;
+
+
+	@Before
+	public void createWorkDir() throws IOException {
+		workDir = Files.createTempDirectory("HLA_Services_som").toFile();
+	}
+
+
+	@After
+	public void deleteWorkDir() throws IOException {
+		try (Stream<Path> paths = Files.walk(workDir.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+
+	@Test
+	public void declaredServicesOnly() throws IOException {
+
+		HLA_Services_ModelGenerator generator = new HLA_Services_ModelGenerator(3, 20, 12);
+		List<String> somFiles = generator.writeSomModules(workDir);
+
+		Set<String> declaredServices = HLA_Services_SomServicesReader.readDeclaredServices(somFiles);
+		assertEquals(new TreeSet<String>(generator.getDeclaredServices()), declaredServices);
+	}
+
+
+	@Test
+	public void noServiceUtilization() throws IOException {
+
+		HLA_Services_ModelGenerator generator = new HLA_Services_ModelGenerator(2, 5, 0);
+		List<String> fomFiles = generator.writeFomModules(workDir);
+
+		assertTrue(HLA_Services_SomServicesReader.readDeclaredServices(fomFiles).isEmpty());
+	}
+}